@@ -1,6 +1,7 @@
 plugins {
     id("java")
     application
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "edu.kit.kastel.logic"
@@ -27,4 +28,19 @@ java {
 
 tasks.test {
     useJUnitPlatform()
+}
+
+tasks.register<JavaExec>("generateProgram") {
+    group = "application"
+    description = "Generates a synthetic L1 program, pass the generator options with --args"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainModule = "edu.kit.kastel.vads.compiler"
+    mainClass = "edu.kit.kastel.vads.compiler.generator.ProgramGenerator"
+}
+
+jmh {
+    jmhVersion = "1.37"
+    // select benchmarks with e.g. ./gradlew jmh -PjmhIncludes=Parser
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+    resultFormat = "JSON"
 }
\ No newline at end of file
@@ -6,7 +6,33 @@ ASM_FILE="assembly.s"
 BIN_DIR="$(dirname "$0")/build/install/compiler/bin"
 COMPILER="$BIN_DIR/compiler"
 
-"$COMPILER" "$INPUT" "$ASM_FILE"
+# Sends the compilation to the server at COMPILER_SOCKET without starting a JVM, see CompileServer for the protocol.
+# Fails if no server answers, e.g. because it died and left its socket file behind.
+compile_with_server() {
+    case "$INPUT" in
+        /*) input_path="$INPUT" ;;
+        *) input_path="$PWD/$INPUT" ;;
+    esac
+    request="$(printf '%s\t%s' "$input_path" "$PWD/$ASM_FILE")"
+    if command -v socat > /dev/null 2>&1; then
+        # wait for the answer after sending the request, socat gives up after half a second by default
+        response="$(printf '%s\n' "$request" | socat -t 600 - "UNIX-CONNECT:$COMPILER_SOCKET" 2> /dev/null)"
+    elif command -v nc > /dev/null 2>&1; then
+        response="$(printf '%s\n' "$request" | nc -U "$COMPILER_SOCKET" 2> /dev/null)"
+    else
+        return 1
+    fi
+    exit_code="$(printf '%s\n' "$response" | head -n 1)"
+    case "$exit_code" in
+        '' | *[!0-9]*) return 1 ;;
+    esac
+    printf '%s\n' "$response" | tail -n +2 >&2
+}
+
+# COMPILER_SOCKET may point to a running `compiler --server <socket>` to skip JVM startup and warm-up
+if [ -z "$COMPILER_SOCKET" ] || [ ! -S "$COMPILER_SOCKET" ] || ! compile_with_server; then
+    "$COMPILER" "$INPUT" "$ASM_FILE"
+fi
 
 gcc -o "$OUTPUT" "$ASM_FILE"
 
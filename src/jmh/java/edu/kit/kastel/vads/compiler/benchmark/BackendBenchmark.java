@@ -0,0 +1,112 @@
+package edu.kit.kastel.vads.compiler.benchmark;
+
+import edu.kit.kastel.vads.compiler.backend.asm.AsmRegisterAllocator;
+import edu.kit.kastel.vads.compiler.backend.asm.CodeGenerator;
+import edu.kit.kastel.vads.compiler.backend.asm.LirFunction;
+import edu.kit.kastel.vads.compiler.backend.asm.LivenessAnalysis;
+import edu.kit.kastel.vads.compiler.backend.asm.SsaLiveness;
+import edu.kit.kastel.vads.compiler.ir.IrGraph;
+import edu.kit.kastel.vads.compiler.ir.SsaTranslation;
+import edu.kit.kastel.vads.compiler.ir.optimize.ConstantFolding;
+import edu.kit.kastel.vads.compiler.ir.optimize.GlobalValueNumbering;
+import edu.kit.kastel.vads.compiler.ir.optimize.LocalValueNumbering;
+import edu.kit.kastel.vads.compiler.ir.optimize.Optimizer;
+import edu.kit.kastel.vads.compiler.generator.ProgramGenerator;
+import edu.kit.kastel.vads.compiler.generator.ProgramGenerator.Shape;
+import edu.kit.kastel.vads.compiler.lexer.Lexer;
+import edu.kit.kastel.vads.compiler.parser.Parser;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+import edu.kit.kastel.vads.compiler.parser.ast.FunctionTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/// Benchmarks SSA construction and the phases of the assembly backend.
+/// Each benchmark only measures its own phase, the inputs are prepared once per trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackendBenchmark {
+    /// The number of statements in the generated program.
+    @Param({"100", "1000"})
+    public int statements;
+    /// The number of variables in the generated program, all of them are live until the end without folding.
+    @Param({"16"})
+    public int variables;
+    /// The nesting depth of the generated expressions.
+    @Param({"3"})
+    public int depth;
+
+    private FunctionTree function;
+    private IrGraph graph;
+    /// The selected instructions of the function, which liveness and register allocation work on.
+    private LirFunction instructions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String source = ProgramGenerator.generate(
+            new Shape(this.statements, this.variables, this.depth, Shape.DEFAULT.operators(), Shape.DEFAULT.seed()));
+        this.function = new Parser(new TokenSource(Lexer.forString(source))).parseProgram()
+            .topLevelTrees().getFirst();
+        // constant folding reduces generated programs to a single constant, which leaves the backend nothing to do
+        this.graph = new SsaTranslation(this.function, new LocalValueNumbering()).translate();
+        new GlobalValueNumbering(this.graph).run();
+        this.instructions = new CodeGenerator().selectInstructions(this.graph);
+    }
+
+    @Benchmark
+    public IrGraph ssaTranslation() {
+        return new SsaTranslation(this.function, optimizer()).translate();
+    }
+
+    @Benchmark
+    public LivenessAnalysis liveness() {
+        LivenessAnalysis liveness = new LivenessAnalysis();
+        liveness.analyzeLiveness(this.instructions);
+        return liveness;
+    }
+
+    @Benchmark
+    public SsaLiveness ssaLiveness() {
+        SsaLiveness liveness = new SsaLiveness();
+        liveness.analyzeLiveness(this.instructions);
+        return liveness;
+    }
+
+    @Benchmark
+    public LirFunction instructionSelection() {
+        return new CodeGenerator().selectInstructions(this.graph);
+    }
+
+    /// Includes liveness, as the allocator runs it itself.
+    @Benchmark
+    public int[] registerAllocation() {
+        return new AsmRegisterAllocator().allocateRegisters(this.instructions);
+    }
+
+    /// Includes instruction selection and register allocation, as the code generator runs them itself.
+    @Benchmark
+    public String codeGeneration() {
+        return new CodeGenerator().generateCode(List.of(this.graph));
+    }
+
+    /// The optimizers the compiler translates with.
+    private static Optimizer optimizer() {
+        return new ConstantFolding().andThen(new LocalValueNumbering());
+    }
+}
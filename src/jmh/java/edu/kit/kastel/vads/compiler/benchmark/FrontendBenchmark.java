@@ -0,0 +1,87 @@
+package edu.kit.kastel.vads.compiler.benchmark;
+
+import edu.kit.kastel.vads.compiler.generator.ProgramGenerator;
+import edu.kit.kastel.vads.compiler.generator.ProgramGenerator.Shape;
+import edu.kit.kastel.vads.compiler.lexer.Lexer;
+import edu.kit.kastel.vads.compiler.lexer.Token;
+import edu.kit.kastel.vads.compiler.parser.Parser;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
+import edu.kit.kastel.vads.compiler.semantic.SemanticAnalysis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/// Benchmarks the phases up to and including semantic analysis.
+/// Each benchmark only measures its own phase, the inputs are prepared once per trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontendBenchmark {
+    /// The number of statements in the generated program.
+    @Param({"100", "1000", "10000"})
+    public int statements;
+    /// The number of variables in the generated program, all of them are live until the end.
+    @Param({"16"})
+    public int variables;
+    /// The nesting depth of the generated expressions.
+    @Param({"3"})
+    public int depth;
+
+    private String source;
+    private ProgramTree program;
+    private Lexer lexer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.source = ProgramGenerator.generate(
+            new Shape(this.statements, this.variables, this.depth, Shape.DEFAULT.operators(), Shape.DEFAULT.seed()));
+        this.lexer = Lexer.forString(this.source);
+        this.program = new Parser(new TokenSource(this.lexer)).parseProgram();
+    }
+
+    @Benchmark
+    public void lexer(Blackhole blackhole) {
+        Lexer lexer = Lexer.forString(this.source);
+        Optional<Token> token;
+        while ((token = lexer.nextToken()).isPresent()) {
+            blackhole.consume(token.get());
+        }
+    }
+
+    /// Tokens are pulled lazily, so this drains the source to include the buffering overhead.
+    @Benchmark
+    public void tokenSource(Blackhole blackhole) {
+        TokenSource tokenSource = new TokenSource(Lexer.forString(this.source));
+        while (tokenSource.hasMore()) {
+            blackhole.consume(tokenSource.consume());
+        }
+    }
+
+    /// Lexing is interleaved with parsing, compare with [#tokenSource(Blackhole)] for the parser's share.
+    @Benchmark
+    public ProgramTree parser() {
+        return new Parser(new TokenSource(Lexer.forString(this.source))).parseProgram();
+    }
+
+    @Benchmark
+    public void semanticAnalysis() {
+        new SemanticAnalysis(this.program, this.lexer.lineMap()).analyze();
+    }
+}
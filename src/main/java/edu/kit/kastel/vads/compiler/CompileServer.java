@@ -0,0 +1,124 @@
+package edu.kit.kastel.vads.compiler;
+
+import edu.kit.kastel.vads.compiler.backend.asm.BackendOptions;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/// A long-lived compiler process listening on a Unix domain socket.
+/// Compiling many small programs this way avoids paying JVM startup and JIT warm-up for each of them.
+///
+/// Each connection carries a single request, a line `<input>\t<output>` with absolute paths.
+/// The server answers with a line containing the exit code a single compilation would have produced,
+/// followed by the diagnostics of the compilation, and closes the connection.
+/// Requests are handled concurrently.
+final class CompileServer {
+    private CompileServer() {
+
+    }
+
+    /// @param backend the backend options used for all requests
+    /// @throws IOException if another server is already listening on the socket
+    static void serve(Path socket, BackendOptions backend) throws IOException {
+        if (isListening(socket)) {
+            throw new IOException("a server is already listening on " + socket);
+        }
+        // a socket file left behind by a server that died without its shutdown hook would make binding fail
+        Files.deleteIfExists(socket);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socket);
+                } catch (IOException _) {
+                    // nothing left to do
+                }
+            }));
+            while (true) {
+                SocketChannel client = server.accept();
+                Thread.ofVirtual().start(() -> handle(client, backend));
+            }
+        }
+    }
+
+    /// {@return whether a server accepts connections on the socket}
+    private static boolean isListening(Path socket) {
+        if (!Files.exists(socket)) {
+            return false;
+        }
+        try (SocketChannel _ = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            return true;
+        } catch (IOException _) {
+            return false;
+        }
+    }
+
+    private static void handle(SocketChannel client, BackendOptions backend) {
+        try (client) {
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8)
+            );
+            String request = reader.readLine();
+            if (request == null) {
+                // a connection without a request, e.g. another server checking whether this one is alive
+                return;
+            }
+            ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+            int exitCode = compile(request, new PrintStream(diagnostics, true, StandardCharsets.UTF_8), backend);
+            OutputStream out = Channels.newOutputStream(client);
+            out.write((exitCode + "\n").getBytes(StandardCharsets.UTF_8));
+            diagnostics.writeTo(out);
+        } catch (IOException e) {
+            // the client went away, there is no one left to report to
+            e.printStackTrace();
+        }
+    }
+
+    private static int compile(String request, PrintStream diagnostics, BackendOptions backend) {
+        String[] paths = request.split("\t");
+        if (paths.length != 2) {
+            diagnostics.println("Invalid request: Expected '<input>\\t<output>' but got " + request);
+            return Main.EXIT_INVALID_ARGUMENTS;
+        }
+        try {
+            return Main.compile(Path.of(paths[0]), Path.of(paths[1]), diagnostics, backend);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace(diagnostics);
+            return Main.EXIT_INTERNAL_ERROR;
+        }
+    }
+
+    /// Sends a single request to a running server and forwards its diagnostics to stderr.
+    /// {@return the exit code reported by the server}
+    static int request(Path socket, Path input, Path output) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            String request = input.toAbsolutePath() + "\t" + output.toAbsolutePath() + "\n";
+            Channels.newOutputStream(channel).write(request.getBytes(StandardCharsets.UTF_8));
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8)
+            );
+            String exitCode = reader.readLine();
+            if (exitCode == null) {
+                throw new IOException("server closed the connection without a response");
+            }
+            Writer diagnostics = new OutputStreamWriter(System.err, StandardCharsets.UTF_8);
+            reader.transferTo(diagnostics);
+            diagnostics.flush();
+            return Integer.parseInt(exitCode);
+        }
+    }
+}
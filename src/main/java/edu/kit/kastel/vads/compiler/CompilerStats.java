@@ -0,0 +1,147 @@
+package edu.kit.kastel.vads.compiler;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/// Collects wall time, CPU time and allocated bytes per compiler phase, as well as some size counters.
+///
+/// Phases are measured on the thread running them. When functions are compiled in parallel,
+/// the measurements of all threads are summed up, so the wall time of a phase can exceed the total wall time.
+/// All methods are safe to call concurrently.
+///
+/// The [#DISABLED] instance ignores everything, so passing it costs next to nothing.
+public final class CompilerStats {
+    /// Collects nothing, for compilations without `--stats`.
+    public static final CompilerStats DISABLED = new CompilerStats(false);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final Measurement NO_MEASUREMENT = () -> {
+    };
+
+    public enum Phase {
+        LEXING,
+        PARSING,
+        INTEGER_LITERAL_RANGE,
+        VARIABLE_STATUS,
+        RETURN_ANALYSIS,
+        SSA_TRANSLATION,
+        GLOBAL_VALUE_NUMBERING,
+        INSTRUCTION_SELECTION,
+        LIVENESS,
+        INTERFERENCE_GRAPH,
+        COLORING,
+        PEEPHOLE,
+        EMISSION,
+    }
+
+    public enum Counter {
+        TOKENS,
+        AST_NODES,
+        IR_NODES,
+        VALUE_NUMBERED_NODES,
+        INTERFERENCE_EDGES,
+        COALESCED_MOVES,
+        SPILLS,
+        PEEPHOLE_SELF_MOVES,
+        PEEPHOLE_RELOADS,
+        PEEPHOLE_DEAD_MOVES,
+        PEEPHOLE_ZERO_IDIOMS,
+        PEEPHOLE_IDENTITIES,
+    }
+
+    /// A running measurement of a phase, closing it adds the measured values to the phase.
+    public interface Measurement extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final boolean enabled;
+    private final AtomicLongArray wallNanos = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray cpuNanos = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray allocatedBytes = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+    private CompilerStats(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /// {@return a new instance that collects statistics}
+    public static CompilerStats create() {
+        return new CompilerStats(true);
+    }
+
+    /// {@return whether statistics are collected}
+    /// Counters that are expensive to compute should only be computed if this is true.
+    public boolean enabled() {
+        return this.enabled;
+    }
+
+    /// Starts measuring the given phase on the current thread, use it in a try-with-resources statement.
+    public Measurement measure(Phase phase) {
+        if (!this.enabled) {
+            return NO_MEASUREMENT;
+        }
+        long wall = System.nanoTime();
+        long cpu = THREADS.getCurrentThreadCpuTime();
+        long allocated = THREADS.getCurrentThreadAllocatedBytes();
+        return () -> {
+            int index = phase.ordinal();
+            this.wallNanos.addAndGet(index, System.nanoTime() - wall);
+            this.cpuNanos.addAndGet(index, THREADS.getCurrentThreadCpuTime() - cpu);
+            this.allocatedBytes.addAndGet(index, THREADS.getCurrentThreadAllocatedBytes() - allocated);
+        };
+    }
+
+    public void count(Counter counter, long amount) {
+        if (this.enabled) {
+            this.counters.addAndGet(counter.ordinal(), amount);
+        }
+    }
+
+    /// {@return the statistics as a human-readable table}
+    public String table() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%-22s %12s %12s %16s%n", "phase", "wall ms", "cpu ms", "allocated bytes"));
+        for (Phase phase : Phase.values()) {
+            int index = phase.ordinal();
+            builder.append(String.format(Locale.ROOT, "%-22s %12.3f %12.3f %16d%n", name(phase),
+                this.wallNanos.get(index) / 1e6, this.cpuNanos.get(index) / 1e6, this.allocatedBytes.get(index)));
+        }
+        builder.append('\n');
+        for (Counter counter : Counter.values()) {
+            builder.append(String.format(Locale.ROOT, "%-22s %12d%n", name(counter), this.counters.get(counter.ordinal())));
+        }
+        return builder.toString();
+    }
+
+    /// {@return the statistics as a JSON object}
+    /// Phases map to objects with `wallNanos`, `cpuNanos` and `allocatedBytes`, counters map to numbers.
+    public String json() {
+        StringBuilder builder = new StringBuilder("{\"phases\":{");
+        for (Phase phase : Phase.values()) {
+            int index = phase.ordinal();
+            if (index > 0) {
+                builder.append(',');
+            }
+            builder.append('"').append(name(phase)).append("\":{")
+                .append("\"wallNanos\":").append(this.wallNanos.get(index))
+                .append(",\"cpuNanos\":").append(this.cpuNanos.get(index))
+                .append(",\"allocatedBytes\":").append(this.allocatedBytes.get(index))
+                .append('}');
+        }
+        builder.append("},\"counters\":{");
+        for (Counter counter : Counter.values()) {
+            if (counter.ordinal() > 0) {
+                builder.append(',');
+            }
+            builder.append('"').append(name(counter)).append("\":").append(this.counters.get(counter.ordinal()));
+        }
+        return builder.append("}}").toString();
+    }
+
+    private static String name(Enum<?> constant) {
+        return constant.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
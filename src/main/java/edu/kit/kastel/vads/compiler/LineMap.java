@@ -0,0 +1,31 @@
+package edu.kit.kastel.vads.compiler;
+
+import java.util.Arrays;
+
+/// Records the offsets at which lines of an input start.
+/// This allows materializing [Position]s and [Span]s from offsets and [PackedSpan]s on demand.
+public final class LineMap {
+    private int[] lineStarts = new int[64];
+    private int lines = 1;
+
+    /// Marks the start of a new line. Offsets must be added in ascending order.
+    public void addLineStart(int offset) {
+        if (this.lines == this.lineStarts.length) {
+            this.lineStarts = Arrays.copyOf(this.lineStarts, this.lines * 2);
+        }
+        this.lineStarts[this.lines++] = offset;
+    }
+
+    public Position position(int offset) {
+        int line = Arrays.binarySearch(this.lineStarts, 0, this.lines, offset);
+        if (line < 0) {
+            // not a line start itself, so take the line starting before it
+            line = -line - 2;
+        }
+        return new Position.SimplePosition(line, offset - this.lineStarts[line]);
+    }
+
+    public Span span(long packedSpan) {
+        return new Span.SimpleSpan(position(PackedSpan.start(packedSpan)), position(PackedSpan.end(packedSpan)));
+    }
+}
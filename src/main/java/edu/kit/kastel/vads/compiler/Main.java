@@ -1,10 +1,22 @@
 package edu.kit.kastel.vads.compiler;
 
+import edu.kit.kastel.vads.compiler.CompilerStats.Counter;
+import edu.kit.kastel.vads.compiler.CompilerStats.Measurement;
+import edu.kit.kastel.vads.compiler.CompilerStats.Phase;
+import edu.kit.kastel.vads.compiler.backend.asm.BackendOptions;
+import edu.kit.kastel.vads.compiler.backend.asm.BackendOptions.AllocatorAlgorithm;
+import edu.kit.kastel.vads.compiler.backend.asm.BackendOptions.LivenessAlgorithm;
 import edu.kit.kastel.vads.compiler.backend.asm.CodeGenerator;
+import edu.kit.kastel.vads.compiler.backend.asm.PeepholeRule;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
 import edu.kit.kastel.vads.compiler.ir.SsaTranslation;
+import edu.kit.kastel.vads.compiler.ir.node.Node;
+import edu.kit.kastel.vads.compiler.ir.optimize.ConstantFolding;
+import edu.kit.kastel.vads.compiler.ir.optimize.GlobalValueNumbering;
 import edu.kit.kastel.vads.compiler.ir.optimize.LocalValueNumbering;
+import edu.kit.kastel.vads.compiler.ir.optimize.Optimizer;
 import edu.kit.kastel.vads.compiler.lexer.Lexer;
+import edu.kit.kastel.vads.compiler.lexer.Token;
 import edu.kit.kastel.vads.compiler.parser.ParseException;
 import edu.kit.kastel.vads.compiler.parser.Parser;
 import edu.kit.kastel.vads.compiler.parser.TokenSource;
@@ -12,50 +24,285 @@ import edu.kit.kastel.vads.compiler.parser.ast.FunctionTree;
 import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
 import edu.kit.kastel.vads.compiler.semantic.SemanticAnalysis;
 import edu.kit.kastel.vads.compiler.semantic.SemanticException;
+import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class Main {
+    static final int EXIT_SUCCESS = 0;
+    static final int EXIT_INTERNAL_ERROR = 1;
+    static final int EXIT_INVALID_ARGUMENTS = 3;
+    static final int EXIT_SEMANTIC_ERROR = 7;
+    static final int EXIT_PARSE_ERROR = 42;
+
     public static void main(String[] args) throws IOException {
-        if (args.length != 2) {
-            System.err.println("Invalid arguments: Expected one input file and one output file");
-            System.exit(3);
+        CompilerStats stats = CompilerStats.DISABLED;
+        boolean json = false;
+        BackendOptions backend = BackendOptions.DEFAULT;
+        int first = 0;
+        for (; first < args.length; first++) {
+            String option = args[first];
+            if (option.equals("--stats") || option.equals("--stats=json")) {
+                stats = CompilerStats.create();
+                json = option.equals("--stats=json");
+            } else if (option.startsWith("--liveness=")) {
+                LivenessAlgorithm liveness = option(LivenessAlgorithm.class, option.substring("--liveness=".length()));
+                if (liveness == null) {
+                    System.err.println("Invalid arguments: Unknown liveness analysis " + option);
+                    System.exit(EXIT_INVALID_ARGUMENTS);
+                }
+                backend = backend.withLiveness(liveness);
+            } else if (option.startsWith("--allocator=")) {
+                AllocatorAlgorithm allocator = option(AllocatorAlgorithm.class, option.substring("--allocator=".length()));
+                if (allocator == null) {
+                    System.err.println("Invalid arguments: Unknown register allocator " + option);
+                    System.exit(EXIT_INVALID_ARGUMENTS);
+                }
+                backend = backend.withAllocator(allocator);
+            } else if (option.startsWith("--peephole=")) {
+                Set<PeepholeRule> rules = peepholeRules(option.substring("--peephole=".length()));
+                if (rules == null) {
+                    System.err.println("Invalid arguments: Unknown peephole rule in " + option);
+                    System.exit(EXIT_INVALID_ARGUMENTS);
+                }
+                backend = backend.withPeephole(rules);
+            } else {
+                break;
+            }
         }
-        Path input = Path.of(args[0]);
-        Path output = Path.of(args[1]);
-        ProgramTree program = lexAndParse(input);
-        try {
-            new SemanticAnalysis(program).analyze();
-        } catch (SemanticException e) {
-            e.printStackTrace();
-            System.exit(7);
+        args = Arrays.copyOfRange(args, first, args.length);
+        if (args.length == 2 && args[0].equals("--batch")) {
+            compileBatch(Path.of(args[1]), stats, backend);
+            printStats(stats, json);
             return;
         }
-        List<IrGraph> graphs = new ArrayList<>();
-        for (FunctionTree function : program.topLevelTrees()) {
-            SsaTranslation translation = new SsaTranslation(function, new LocalValueNumbering());
-            graphs.add(translation.translate());
+        if (args.length == 2 && args[0].equals("--server") && !stats.enabled()) {
+            CompileServer.serve(Path.of(args[1]), backend);
+            return;
+        }
+        int exitCode;
+        if (args.length == 4 && args[0].equals("--client") && !stats.enabled()) {
+            exitCode = CompileServer.request(Path.of(args[1]), Path.of(args[2]), Path.of(args[3]));
+        } else if (args.length == 2 && !args[0].equals("--server")) {
+            exitCode = compile(Path.of(args[0]), Path.of(args[1]), System.err, stats, backend);
+            printStats(stats, json);
+        } else {
+            System.err.println("Invalid arguments: Expected one input file and one output file, "
+                + "--batch followed by a directory or manifest file, --server followed by a socket path, "
+                + "or --client followed by a socket path, one input file and one output file. "
+                + "The first two can be preceded by --stats or --stats=json, "
+                + "all but the client by --liveness=dataflow|ssa, --allocator=coloring|chordal "
+                + "and --peephole=all|none|<comma-separated rules>");
+            exitCode = EXIT_INVALID_ARGUMENTS;
+        }
+        if (exitCode != EXIT_SUCCESS) {
+            System.exit(exitCode);
         }
+    }
 
-        // TODO: generate assembly and invoke gcc instead of generating abstract assembly
-        String s = new CodeGenerator().generateCode(graphs);
-        Files.writeString(output, s);
+    /// {@return the constant of `type` named like `value`, ignoring case, or null if there is none}
+    private static <E extends Enum<E>> @Nullable E option(Class<E> type, String value) {
+        for (E constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value)) {
+                return constant;
+            }
+        }
+        return null;
     }
 
-    private static ProgramTree lexAndParse(Path input) throws IOException {
+    /// {@return the peephole rules listed in `value`, `all` or `none`, or null if a rule is unknown}
+    /// Rules are named like in the statistics, e.g. `self-move,dead-move`.
+    private static @Nullable Set<PeepholeRule> peepholeRules(String value) {
+        if (value.equals("all")) {
+            return EnumSet.allOf(PeepholeRule.class);
+        }
+        Set<PeepholeRule> rules = EnumSet.noneOf(PeepholeRule.class);
+        if (value.equals("none")) {
+            return rules;
+        }
+        for (String name : value.split(",")) {
+            PeepholeRule rule = option(PeepholeRule.class, name.replace('-', '_'));
+            if (rule == null) {
+                return null;
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    /// Prints to stderr, as stdout carries the report of batch mode.
+    private static void printStats(CompilerStats stats, boolean json) {
+        if (stats.enabled()) {
+            System.err.println(json ? stats.json() : stats.table());
+        }
+    }
+
+    /// Compiles a single input file, reporting errors in the input to `diagnostics`.
+    /// {@return the exit code for the input, i.e. 0 on success, 42 for lexer and parser errors or 7 for semantic errors}
+    static int compile(Path input, Path output, PrintStream diagnostics, BackendOptions backend) throws IOException {
+        return compile(input, output, diagnostics, CompilerStats.DISABLED, backend);
+    }
+
+    /// Compiles a single input file, reporting errors in the input to `diagnostics` and recording the time
+    /// spent in each phase in `stats`.
+    /// {@return the exit code for the input, i.e. 0 on success, 42 for lexer and parser errors or 7 for semantic errors}
+    static int compile(
+        Path input,
+        Path output,
+        PrintStream diagnostics,
+        CompilerStats stats,
+        BackendOptions backend
+    ) throws IOException {
+        Lexer lexer = Lexer.forFile(input);
+        ProgramTree program;
         try {
-            Lexer lexer = Lexer.forString(Files.readString(input));
-            TokenSource tokenSource = new TokenSource(lexer);
-            Parser parser = new Parser(tokenSource);
-            return parser.parseProgram();
+            program = parse(lexer, stats);
         } catch (ParseException e) {
-            e.printStackTrace();
-            System.exit(42);
-            throw new AssertionError("unreachable");
+            e.printStackTrace(diagnostics);
+            return EXIT_PARSE_ERROR;
         }
+        try {
+            new SemanticAnalysis(program, lexer.lineMap(), stats).analyze();
+        } catch (SemanticException e) {
+            e.printStackTrace(diagnostics);
+            return EXIT_SEMANTIC_ERROR;
+        }
+        CodeGenerator codeGenerator = new CodeGenerator(stats, backend);
+        // functions are compiled independently on the common fork-join pool,
+        // the ordered stream keeps the output in source order
+        List<String> functions = program.topLevelTrees().parallelStream()
+            .map(function -> codeGenerator.generateFunction(translate(function, stats)))
+            .toList();
+        Files.writeString(output, codeGenerator.generateProgram(functions));
+        return EXIT_SUCCESS;
+    }
+
+    /// Compiles many inputs in one process, which saves JVM startup and warm-up for each of them.
+    /// The `batch` argument is either
+    /// - a directory, in which case every `.l1` file in it is compiled to a `.s` file next to it, or
+    /// - a manifest file with one `<input> <output>` pair per line, relative paths are resolved against the
+    ///   directory of the manifest.
+    ///
+    /// For each input, a line `<exit code> <input>` is printed to stdout, using the same exit codes as a single
+    /// compilation. I/O errors and crashes while compiling a single input are reported with exit code 1, like an
+    /// uncaught exception would end a single compilation.
+    /// The statistics of all inputs are summed up in `stats`.
+    static void compileBatch(Path batch, CompilerStats stats, BackendOptions backend) throws IOException {
+        for (BatchEntry entry : readBatch(batch)) {
+            int exitCode;
+            try {
+                exitCode = compile(entry.input(), entry.output(), System.err, stats, backend);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                exitCode = EXIT_INTERNAL_ERROR;
+            }
+            System.out.println(exitCode + " " + entry.input());
+        }
+    }
+
+    private static List<BatchEntry> readBatch(Path batch) throws IOException {
+        if (Files.isDirectory(batch)) {
+            try (Stream<Path> files = Files.list(batch)) {
+                return files.filter(path -> path.getFileName().toString().endsWith(".l1"))
+                    .sorted()
+                    .map(path -> {
+                        String name = path.getFileName().toString();
+                        return new BatchEntry(path, path.resolveSibling(name.substring(0, name.length() - 3) + ".s"));
+                    })
+                    .toList();
+            }
+        }
+        Path base = batch.toAbsolutePath().getParent();
+        List<BatchEntry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(batch)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] parts = line.strip().split("\\s+");
+            if (parts.length != 2) {
+                throw new IOException("invalid manifest line, expected '<input> <output>': " + line);
+            }
+            entries.add(new BatchEntry(base.resolve(parts[0]), base.resolve(parts[1])));
+        }
+        return entries;
+    }
+
+    private static IrGraph translate(FunctionTree function, CompilerStats stats) {
+        IrGraph graph;
+        try (Measurement _ = stats.measure(Phase.SSA_TRANSLATION)) {
+            Optimizer optimizer = new ConstantFolding().andThen(new LocalValueNumbering());
+            SsaTranslation translation = new SsaTranslation(function, optimizer);
+            graph = translation.translate();
+        }
+        try (Measurement _ = stats.measure(Phase.GLOBAL_VALUE_NUMBERING)) {
+            stats.count(Counter.VALUE_NUMBERED_NODES, new GlobalValueNumbering(graph).run());
+        }
+        if (stats.enabled()) {
+            stats.count(Counter.IR_NODES, countNodes(graph));
+        }
+        return graph;
+    }
+
+    private static ProgramTree parse(Lexer lexer, CompilerStats stats) {
+        TokenSource tokenSource;
+        if (stats.enabled()) {
+            // lexing normally happens interleaved with parsing, lex up front to measure both separately
+            List<Token> tokens = new ArrayList<>();
+            try (Measurement _ = stats.measure(Phase.LEXING)) {
+                Optional<Token> token;
+                while ((token = lexer.nextToken()).isPresent()) {
+                    tokens.add(token.get());
+                }
+            }
+            stats.count(Counter.TOKENS, tokens.size());
+            tokenSource = new TokenSource(tokens, lexer.lineMap());
+        } else {
+            tokenSource = new TokenSource(lexer);
+        }
+        ProgramTree program;
+        try (Measurement _ = stats.measure(Phase.PARSING)) {
+            Parser parser = new Parser(tokenSource);
+            program = parser.parseProgram();
+        }
+        if (stats.enabled()) {
+            stats.count(Counter.AST_NODES, TreeCounter.count(program));
+        }
+        return program;
+    }
+
+    /// {@return the number of nodes reachable from the end block of the graph}
+    private static int countNodes(IrGraph graph) {
+        boolean[] visited = new boolean[graph.nodeCount()];
+        Deque<Node> worklist = new ArrayDeque<>();
+        visited[graph.endBlock().id()] = true;
+        worklist.push(graph.endBlock());
+        int count = 1;
+        while (!worklist.isEmpty()) {
+            Node node = worklist.pop();
+            for (int i = 0; i < node.predecessorCount(); i++) {
+                Node predecessor = node.predecessor(i);
+                if (!visited[predecessor.id()]) {
+                    visited[predecessor.id()] = true;
+                    worklist.push(predecessor);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private record BatchEntry(Path input, Path output) {
     }
 }
@@ -0,0 +1,28 @@
+package edu.kit.kastel.vads.compiler;
+
+/// Source spans packed into a single `long`, so tokens, trees and IR nodes don't need to allocate [Span] objects.
+/// The upper 32 bits hold the start offset and the lower 32 bits the end offset, both counted in characters from
+/// the beginning of the input.
+/// A [LineMap] turns a packed span back into a [Span] when line and column information is needed.
+public final class PackedSpan {
+    private PackedSpan() {
+
+    }
+
+    public static long of(int start, int end) {
+        return ((long) start << 32) | (end & 0xFFFF_FFFFL);
+    }
+
+    public static int start(long span) {
+        return (int) (span >>> 32);
+    }
+
+    public static int end(long span) {
+        return (int) span;
+    }
+
+    /// {@return a span from the start of `span` to the end of `later`}
+    public static long merge(long span, long later) {
+        return of(start(span), end(later));
+    }
+}
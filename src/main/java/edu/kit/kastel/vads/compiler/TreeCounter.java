@@ -0,0 +1,102 @@
+package edu.kit.kastel.vads.compiler;
+
+import edu.kit.kastel.vads.compiler.parser.ast.AssignmentTree;
+import edu.kit.kastel.vads.compiler.parser.ast.BinaryOperationTree;
+import edu.kit.kastel.vads.compiler.parser.ast.BlockTree;
+import edu.kit.kastel.vads.compiler.parser.ast.DeclarationTree;
+import edu.kit.kastel.vads.compiler.parser.ast.FunctionTree;
+import edu.kit.kastel.vads.compiler.parser.ast.IdentExpressionTree;
+import edu.kit.kastel.vads.compiler.parser.ast.LValueIdentTree;
+import edu.kit.kastel.vads.compiler.parser.ast.LiteralTree;
+import edu.kit.kastel.vads.compiler.parser.ast.NameTree;
+import edu.kit.kastel.vads.compiler.parser.ast.NegateTree;
+import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
+import edu.kit.kastel.vads.compiler.parser.ast.ReturnTree;
+import edu.kit.kastel.vads.compiler.parser.ast.TypeTree;
+import edu.kit.kastel.vads.compiler.parser.visitor.NoOpVisitor;
+import edu.kit.kastel.vads.compiler.parser.visitor.RecursivePostorderVisitor;
+import edu.kit.kastel.vads.compiler.parser.visitor.Unit;
+
+/// Counts the nodes of an abstract syntax tree, for [CompilerStats.Counter#AST_NODES].
+final class TreeCounter implements NoOpVisitor<Unit> {
+    private long count;
+
+    private TreeCounter() {
+    }
+
+    static long count(ProgramTree program) {
+        TreeCounter counter = new TreeCounter();
+        program.accept(new RecursivePostorderVisitor<>(counter), Unit.INSTANCE);
+        return counter.count;
+    }
+
+    private Unit counted() {
+        this.count++;
+        return Unit.INSTANCE;
+    }
+
+    @Override
+    public Unit visit(AssignmentTree assignmentTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(BinaryOperationTree binaryOperationTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(BlockTree blockTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(DeclarationTree declarationTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(FunctionTree functionTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(IdentExpressionTree identExpressionTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(LiteralTree literalTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(LValueIdentTree lValueIdentTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(NameTree nameTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(NegateTree negateTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(ProgramTree programTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(ReturnTree returnTree, Unit data) {
+        return counted();
+    }
+
+    @Override
+    public Unit visit(TypeTree typeTree, Unit data) {
+        return counted();
+    }
+}
@@ -10,9 +10,7 @@ import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
 import edu.kit.kastel.vads.compiler.ir.node.StartNode;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 public class AasmRegisterAllocator implements RegisterAllocator {
     private int id;
@@ -20,15 +18,17 @@ public class AasmRegisterAllocator implements RegisterAllocator {
 
     @Override
     public Map<Node, Register> allocateRegisters(IrGraph graph) {
-        Set<Node> visited = new HashSet<>();
-        visited.add(graph.endBlock());
+        boolean[] visited = new boolean[graph.nodeCount()];
+        visited[graph.endBlock().id()] = true;
         scan(graph.endBlock(), visited);
         return Map.copyOf(this.registers);
     }
 
-    private void scan(Node node, Set<Node> visited) {
-        for (Node predecessor : node.predecessors()) {
-            if (visited.add(predecessor)) {
+    private void scan(Node node, boolean[] visited) {
+        for (int i = 0; i < node.predecessorCount(); i++) {
+            Node predecessor = node.predecessor(i);
+            if (!visited[predecessor.id()]) {
+                visited[predecessor.id()] = true;
                 scan(predecessor, visited);
             }
         }
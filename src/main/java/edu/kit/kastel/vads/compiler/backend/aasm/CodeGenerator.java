@@ -16,10 +16,8 @@ import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
 import edu.kit.kastel.vads.compiler.ir.node.StartNode;
 import edu.kit.kastel.vads.compiler.ir.node.SubNode;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import static edu.kit.kastel.vads.compiler.ir.util.NodeSupport.predecessorSkipProj;
 
@@ -40,13 +38,15 @@ public class CodeGenerator {
     }
 
     private void generateForGraph(IrGraph graph, StringBuilder builder, Map<Node, Register> registers) {
-        Set<Node> visited = new HashSet<>();
+        boolean[] visited = new boolean[graph.nodeCount()];
         scan(graph.endBlock(), visited, builder, registers);
     }
 
-    private void scan(Node node, Set<Node> visited, StringBuilder builder, Map<Node, Register> registers) {
-        for (Node predecessor : node.predecessors()) {
-            if (visited.add(predecessor)) {
+    private void scan(Node node, boolean[] visited, StringBuilder builder, Map<Node, Register> registers) {
+        for (int i = 0; i < node.predecessorCount(); i++) {
+            Node predecessor = node.predecessor(i);
+            if (!visited[predecessor.id()]) {
+                visited[predecessor.id()] = true;
                 scan(predecessor, visited, builder, registers);
             }
         }
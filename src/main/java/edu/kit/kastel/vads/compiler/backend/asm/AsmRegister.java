@@ -8,4 +8,15 @@ public record AsmRegister(String name) implements Register {
 	public String toString() {
 		return ("%" + this.name()).toLowerCase();
 	}
+
+	/**
+	 * @return the name of the lower 32 bits of this register, e.g. {@code %eax} or {@code %r8d}
+	 */
+	public String lower32() {
+		String name = this.name().toLowerCase();
+		if (Character.isDigit(name.charAt(1))) {
+			return "%" + name + "d";
+		}
+		return "%e" + name.substring(1);
+	}
 }
@@ -1,313 +1,800 @@
 package edu.kit.kastel.vads.compiler.backend.asm;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.Stack;
-
-import edu.kit.kastel.vads.compiler.backend.regalloc.Register;
-import edu.kit.kastel.vads.compiler.backend.regalloc.RegisterAllocator;
-import edu.kit.kastel.vads.compiler.ir.IrGraph;
-import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
-import edu.kit.kastel.vads.compiler.ir.node.Block;
-import edu.kit.kastel.vads.compiler.ir.node.ConstIntNode;
-import edu.kit.kastel.vads.compiler.ir.node.Node;
-import edu.kit.kastel.vads.compiler.ir.node.ProjNode;
-import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
-import edu.kit.kastel.vads.compiler.ir.node.StartNode;
+import java.util.PriorityQueue;
+
+import edu.kit.kastel.vads.compiler.CompilerStats;
+import edu.kit.kastel.vads.compiler.CompilerStats.Counter;
+import edu.kit.kastel.vads.compiler.CompilerStats.Measurement;
+import edu.kit.kastel.vads.compiler.CompilerStats.Phase;
+import edu.kit.kastel.vads.compiler.backend.asm.BackendOptions.AllocatorAlgorithm;
 
 /**
- * 
+ * Assigns each virtual register of a {@link LirFunction} a physical register, or a stack slot if there
+ * are not enough registers.
+ * <p>
+ * Registers that do not get a physical register are spilled: they live in a {@link StackSlot} for their
+ * whole lifetime and the {@link RegisterRewriter} turns their operands into memory operands. Spilled
+ * registers that do not interfere share a slot, which keeps the stack frame small.
+ * <p>
+ * The {@link InstructionSelector} moves the left operand of a two-address instruction into the destination
+ * first. These moves disappear if both get the same register, which the coloring allocator ensures by
+ * coalescing them where that does not cause spills.
+ * <p>
+ * Some instructions define physical registers, like division does with RAX and RDX. Registers live across
+ * them must not get these physical registers, as if they interfered with them. Registers moved from or to a
+ * physical register prefer it, which saves the move.
  */
-public class AsmRegisterAllocator implements RegisterAllocator{
+public class AsmRegisterAllocator {
 
 	private final AsmRegisterCollection ASM_REGISTERS = new AsmRegisterCollection();
 	private final int K = ASM_REGISTERS.REGISTERS.size();
+	// the color of each physical register number, or -1 if the register is not allocatable
+	private final int[] colorsByRegister = new int[Integer.SIZE];
 
-	private final Map<Node, Register> registerAllocation = new HashMap<>();	
-	private final InterferenceGraph interferenceGraph = new InterferenceGraph();
-	private final LivenessAnalysis liveness = new LivenessAnalysis();
-
-	private final Set<Node> initialWorklist = new HashSet<>();
-	private final Set<Node> orderedNodes = new HashSet<>();
-
-	private final Stack<Node> selectStack = new Stack<>();
-	private final Set<Node> simplifyWorklist = new HashSet<>();
-	private final Set<Node> spillWorklist = new HashSet<>();
-
-	private final Set<Node> spilledNodes = new HashSet<>();
-	private final Map<Node, Node> coalescedNodes = new HashMap<>();
-
-	@Override
-	public Map<Node, Register> allocateRegisters(IrGraph graph) {
-
-		orderNodes(graph);
-
-		liveness.analyzeLiveness(orderedNodes, graph);
-
-		/*System.out.println("+++");
-		System.out.println(liveness.getLiveOut());
-		System.out.println(liveness.getLiveIn());
-		System.out.println("+++");
-		System.out.println(initialWorklist);*/
-
-		buildInterferenceGraph(orderedNodes);
-
-		/*System.out.println("_________");
-		System.out.println(interferenceGraph.getAdjList());
-		System.out.println("_________");*/
-		// TODO: simplify, spill
-		
-		//maximumCardinalitySearch(interferenceGraph);
-		/*for (Node node : interferenceGraph.getAdjList().keySet()) {
-			selectStack.push(node);
-		}*/
-		for (Node node : interferenceGraph.getNodes()) {
-            if (interferenceGraph.degree(node) < K) {
-                simplifyWorklist.add(node);
-            } else {
-                spillWorklist.add(node);
-            }
-        }
-
-        while (!simplifyWorklist.isEmpty() || !spillWorklist.isEmpty()) {
-            if (!simplifyWorklist.isEmpty()) {
-                simplify();
-            } else {
-                spill();
-            }
-        }
-
-		System.out.println(selectStack);
-		colorGraph();
-		// TODO: coalescing
-		return Map.copyOf(this.registerAllocation);
+	// the location of each virtual register, as a physical register or stack slot operand
+	private int[] locations = new int[0];
+	// replaced once the number of registers to allocate is known
+	private InterferenceGraph interferenceGraph = new InterferenceGraph(0);
+	private final Liveness liveness;
+	private final AllocatorAlgorithm allocator;
+	private LirFunction function = new LirFunction("");
+
+	// worklists of node indices in the interference graph. Nodes are removed from a worklist by
+	// changing their state, so popped nodes are skipped unless their state still matches the worklist.
+	private final IntStack selectStack = new IntStack();
+	private final IntStack simplifyWorklist = new IntStack();
+	private final IntStack freezeWorklist = new IntStack();
+	private final PriorityQueue<SpillCandidate> spillWorklist = new PriorityQueue<>();
+	private NodeState[] states = new NodeState[0];
+	// the degree among the nodes neither selected nor coalesced
+	private int[] degrees = new int[0];
+	// the node a coalesced node was merged into, every other node is its own alias
+	private int[] alias = new int[0];
+	// the number of definitions and uses of each node, including those of the nodes coalesced with it
+	private int[] accesses = new int[0];
+	private double[] spillCosts = new double[0];
+	// the colors each node must not get, as a bit set
+	private int[] forbiddenColors = new int[0];
+	// the color each node would rather get, or -1
+	private int[] preferredColors = new int[0];
+
+	// moves from a source to a destination node, each node has a list of the moves it is part of
+	private final IntStack moveSources = new IntStack();
+	private final IntStack moveDestinations = new IntStack();
+	private MoveState[] moveStates = new MoveState[0];
+	private final IntStack worklistMoves = new IntStack();
+	private int[][] moveLists = new int[0][];
+	private int[] moveListSizes = new int[0];
+	private int coalescedMoves;
+	// marks[n] == mark iff n was seen by the current Briggs test
+	private int[] marks = new int[0];
+	private int mark;
+
+	private final List<Integer> spilledNodes = new ArrayList<>();
+
+	private final CompilerStats stats;
+
+	public AsmRegisterAllocator() {
+		this(CompilerStats.DISABLED, BackendOptions.DEFAULT);
+	}
+
+	/**
+	 * @param stats receives the time spent in liveness analysis, building the interference graph and coloring
+	 * @param options selects the liveness analysis and the coloring algorithm
+	 */
+	public AsmRegisterAllocator(CompilerStats stats, BackendOptions options) {
+		this.stats = stats;
+		this.liveness = options.liveness().create();
+		this.allocator = options.allocator();
+		Arrays.fill(colorsByRegister, -1);
+		for (int color = 0; color < K; color++) {
+			colorsByRegister[LirOperand.number(LirOperand.physical(ASM_REGISTERS.REGISTERS.get(color)))] = color;
+		}
+	}
+
+	/**
+	 * @param function the function to allocate the virtual registers of
+	 * @return the location of each virtual register, as a physical register or stack slot operand,
+	 * see {@link RegisterRewriter} for applying them to the function
+	 */
+	public int[] allocateRegisters(LirFunction function) {
+		this.function = function;
+		this.locations = new int[function.virtualRegisterCount()];
+
+		try (Measurement _ = stats.measure(Phase.LIVENESS)) {
+			liveness.analyzeLiveness(function);
+		}
+
+		try (Measurement _ = stats.measure(Phase.INTERFERENCE_GRAPH)) {
+			buildInterferenceGraph();
+		}
+		if (stats.enabled()) {
+			stats.count(Counter.INTERFERENCE_EDGES, interferenceGraph.edgeCount());
+		}
+
+		try (Measurement _ = stats.measure(Phase.COLORING)) {
+			switch (allocator) {
+				case COLORING -> simplifyAndColor();
+				case CHORDAL -> colorChordal();
+			}
+			assignStackSlots();
+		}
+		stats.count(Counter.SPILLS, spilledNodes.size());
+		stats.count(Counter.COALESCED_MOVES, coalescedMoves);
+		return locations;
 	}
 
-	private void orderNodes(IrGraph graph) {
-		Set<Node> visited = new HashSet<>();
-		scan(graph.endBlock(), visited);
+	/**
+	 * Colors the graph by iterated register coalescing (George and Appel). Nodes of insignificant degree
+	 * that are not move related are removed first, as they can always be colored. Otherwise, moves are
+	 * coalesced if the Briggs or the George test shows that this cannot make the graph uncolorable.
+	 * If no move can be coalesced, the moves of a node of insignificant degree are given up on. If there is
+	 * no such node either, the node that is cheapest to spill is removed, which may still find a color
+	 * later on, as its neighbors need not use all K colors.
+	 */
+	private void simplifyAndColor() {
+		int size = interferenceGraph.size();
+		states = new NodeState[size];
+		degrees = new int[size];
+		marks = new int[size];
+		computeSpillCosts();
+		for (int node = 0; node < size; node++) {
+			// a forbidden color takes one away just like a neighbor
+			degrees[node] = interferenceGraph.degree(node) + Integer.bitCount(forbiddenColors[node]);
+		}
+		for (int node = 0; node < size; node++) {
+			if (degrees[node] >= K) {
+				addToSpillWorklist(node);
+			} else if (isMoveRelated(node)) {
+				states[node] = NodeState.FREEZE;
+				freezeWorklist.push(node);
+			} else {
+				states[node] = NodeState.SIMPLIFY;
+				simplifyWorklist.push(node);
+			}
+		}
+
+		while (true) {
+			if (!simplifyWorklist.isEmpty()) {
+				simplify();
+			} else if (!worklistMoves.isEmpty()) {
+				coalesce();
+			} else if (!freezeWorklist.isEmpty()) {
+				freeze();
+			} else if (!spillWorklist.isEmpty()) {
+				selectSpill();
+			} else {
+				break;
+			}
+		}
+
+		colorGraph();
 	}
 
-	private void scan(Node node, Set<Node> visited) {
-		for (Node predecessor: node.predecessors()) {
-			if (visited.add(predecessor)) {
-				scan(predecessor, visited);
+	/**
+	 * Estimates the cost of spilling each node: every operand it appears in becomes a memory access,
+	 * while spilling a node of high degree makes it easier to color its many neighbors.
+	 */
+	private void computeSpillCosts() {
+		accesses = new int[interferenceGraph.size()];
+		for (int i = 0; i < function.size(); i++) {
+			for (int k = 0; k < LirFunction.MAX_OPERANDS; k++) {
+				int operand = function.operand(i, k);
+				if (LirOperand.isVirtual(operand)) {
+					accesses[LirOperand.number(operand)]++;
+				}
 			}
 		}
-		
-		if (needsRegister(node)) {
-			orderedNodes.add(node);
+		spillCosts = new double[accesses.length];
+		for (int node = 0; node < spillCosts.length; node++) {
+			spillCosts[node] = spillCost(node);
 		}
-		
 	}
 
-	private static boolean needsRegister(Node node) {
-		return !(node instanceof ProjNode || node instanceof StartNode || node instanceof Block || node instanceof ReturnNode);
+	private double spillCost(int node) {
+		return (double) accesses[node] / Math.max(1, interferenceGraph.degree(node));
 	}
 
-	
 	/**
-	 * Builds the interference graph
-	 * @param nodes
-	 * @return
+	 * Builds the interference graph: the register an instruction defines interferes with the registers live
+	 * after it, except with the source of a move, which may share a register with the destination.
+	 * Registers live after an instruction defining a physical register must not get that one either.
+	 * Also collects the moves between virtual registers for coalescing, and makes registers prefer the
+	 * physical registers they are moved from or to.
 	 */
-	private InterferenceGraph buildInterferenceGraph(Set<Node> nodes) {
-		for (Node u: nodes) {
-			Set<Node> live = new HashSet<>(liveness.getLiveOut().get(u));
-			
-			for (Node v : live) {
-				for (Node w : live) {
-					if (!v.equals(w)) {
-						interferenceGraph.addEdge(v, w);
+	private void buildInterferenceGraph() {
+		int size = function.virtualRegisterCount();
+		interferenceGraph = new InterferenceGraph(size);
+		alias = new int[size];
+		moveLists = new int[size][];
+		moveListSizes = new int[size];
+		for (int node = 0; node < size; node++) {
+			alias[node] = node;
+			moveLists[node] = new int[0];
+		}
+		forbiddenColors = new int[size];
+		preferredColors = new int[size];
+		Arrays.fill(preferredColors, -1);
+
+		for (int i = 0; i < function.size(); i++) {
+			LirOpcode opcode = function.opcode(i);
+			int source = opcode == LirOpcode.MOV ? function.operand(i, 0) : LirOperand.NONE;
+			int destination = opcode == LirOpcode.MOV ? function.operand(i, 1) : LirOperand.NONE;
+			int definition = function.definedRegister(i);
+			int physicalDefinitions = opcode.implicitDefinitions();
+			for (int k = 0; k < opcode.operandCount(); k++) {
+				if (opcode.defines(k) && LirOperand.isPhysical(function.operand(i, k))) {
+					physicalDefinitions |= 1 << LirOperand.number(function.operand(i, k));
+				}
+			}
+			int forbidden = colors(physicalDefinitions);
+			if (definition >= 0 || forbidden != 0) {
+				for (int live : liveness.liveOut(i)) {
+					if (LirOperand.isVirtual(source) && live == LirOperand.number(source)) {
+						continue;
+					}
+					if (definition >= 0) {
+						interferenceGraph.addEdge(definition, live);
 					}
+					forbiddenColors[live] |= forbidden;
 				}
-				interferenceGraph.addEdge(u, v);
 			}
-			interferenceGraph.getAdjList().putIfAbsent(u, new HashSet<>());
+			if (LirOperand.isVirtual(source) && LirOperand.isVirtual(destination)) {
+				addMove(LirOperand.number(source), LirOperand.number(destination));
+			} else if (LirOperand.isVirtual(source) && LirOperand.isPhysical(destination)) {
+				prefer(LirOperand.number(source), destination);
+			} else if (LirOperand.isPhysical(source) && LirOperand.isVirtual(destination)) {
+				prefer(LirOperand.number(destination), source);
+			}
 		}
-		return interferenceGraph;
+		moveStates = new MoveState[moveSources.size()];
+		Arrays.fill(moveStates, MoveState.WORKLIST);
 	}
 
 	/**
-	 * Performs greedy coloring on the interference graph
-	 * @return
+	 * @param registers a bit set over physical register numbers
+	 * @return the bit set of the colors of the allocatable ones among them
+	 */
+	private int colors(int registers) {
+		int colors = 0;
+		for (; registers != 0; registers &= registers - 1) {
+			int color = colorsByRegister[Integer.numberOfTrailingZeros(registers)];
+			if (color >= 0) {
+				colors |= 1 << color;
+			}
+		}
+		return colors;
+	}
+
+	/**
+	 * Makes a node prefer a physical register, unless it already prefers another one.
+	 * @param physicalRegister a physical register operand
+	 */
+	private void prefer(int node, int physicalRegister) {
+		int color = colorsByRegister[LirOperand.number(physicalRegister)];
+		if (color >= 0 && preferredColors[node] < 0) {
+			preferredColors[node] = color;
+		}
+	}
+
+	private void addMove(int sourceIndex, int destination) {
+		int move = moveSources.size();
+		moveSources.push(sourceIndex);
+		moveDestinations.push(destination);
+		worklistMoves.push(move);
+		appendMove(sourceIndex, move);
+		appendMove(destination, move);
+	}
+
+	private void appendMove(int node, int move) {
+		if (moveListSizes[node] == moveLists[node].length) {
+			moveLists[node] = Arrays.copyOf(moveLists[node], Math.max(2, moveListSizes[node] * 2));
+		}
+		moveLists[node][moveListSizes[node]++] = move;
+	}
+
+	/**
+	 * Colors the nodes in the reverse order they were removed from the graph,
+	 * nodes whose neighbors already use all K colors are spilled.
+	 * Coalesced nodes get the color of the node they were merged into.
 	 */
 	private void colorGraph() {
-		Map<Node, Integer> coloring = new HashMap<>();
+		int[] coloring = new int[interferenceGraph.size()];
+		Arrays.fill(coloring, -1);
+		// usedBy[c] == node iff a neighbor of node has color c
+		int[] usedBy = new int[K + 1];
+		Arrays.fill(usedBy, -1);
 		while (!selectStack.isEmpty()) {
-			Node node = selectStack.pop();
-			Set<Integer> usedColors = new HashSet<>();
-			for (Node w : interferenceGraph.getAdjacents(node)) {
-				if (coloring.containsKey(w)) {
-					usedColors.add(coloring.get(w));
-				}
-			}
-			int color = -1;
-			for (int i = 0; i < K; i++) {
-				if (!usedColors.contains(i)) {
-					color = i;
-					break;
+			int node = selectStack.pop();
+			for (int i = 0; i < interferenceGraph.degree(node); i++) {
+				int color = coloring[alias(interferenceGraph.adjacent(node, i))];
+				if (color >= 0) {
+					usedBy[color] = node;
 				}
 			}
-			if (color == -1) {
-				spillWorklist.add(node);
-				//simplify();
-				/*if (!simplifyWorklist.isEmpty()) {
-					spilledNodes.add(node);
-				}*/
+			int color = chooseColor(node, coloring, usedBy);
+			if (color < K) {
+				coloring[node] = color;
 			} else {
-				coloring.put(node, color);
+				spilledNodes.add(node);
 			}
 		}
-		
-		for (Node node : spilledNodes) {
-			int color = coloring.size() % K;
-			coloring.put(node, color);
+		for (int node = 0; node < coloring.length; node++) {
+			coloring[node] = coloring[alias(node)];
 		}
-		
 		assignRegisters(coloring);
 	}
 
 	/**
-	 * Performs maximum cardinality search on the interference graph
-	 * for simplical elimination ordering
-	 * @param graph
+	 * Prefers the preferred color of the node, then the color of a node the given node is a move away from,
+	 * so moves that were not coalesced may still disappear.
+	 * @param usedBy marks the colors used by the neighbors of the node
+	 * @return a color neither used by the neighbors nor forbidden, or K if there is none
 	 */
-	private void maximumCardinalitySearch(InterferenceGraph graph) {
-		List<Node> eliminationOrdering = new ArrayList<>();
-		int n = graph.getNodes().size();
-
-		Map<Node, Integer> weights = new HashMap<>();
-		for (Node node: graph.getNodes()) {
-			weights.put(node, 0);
-		}
-		
-		while (!weights.isEmpty()){
-			Node maxNode = findMaxWeightNode(weights);
-			eliminationOrdering.add(maxNode);
-			for (Node neighbor : graph.getAdjacents(maxNode)) {
-				if (weights.containsKey(neighbor)) {
-					weights.compute(neighbor, (k, v) -> v + 1);
-					
+	private int chooseColor(int node, int[] coloring, int[] usedBy) {
+		for (int forbidden = forbiddenColors[node]; forbidden != 0; forbidden &= forbidden - 1) {
+			usedBy[Integer.numberOfTrailingZeros(forbidden)] = node;
+		}
+		if (preferredColors[node] >= 0 && usedBy[preferredColors[node]] != node) {
+			return preferredColors[node];
+		}
+		for (int i = 0; i < moveListSizes[node]; i++) {
+			int move = moveLists[node][i];
+			int partner = alias(moveSources.get(move)) == node ? moveDestinations.get(move) : moveSources.get(move);
+			int color = coloring[alias(partner)];
+			if (color >= 0 && usedBy[color] != node) {
+				return color;
+			}
+		}
+		int color = 0;
+		while (usedBy[color] == node) {
+			color++;
+		}
+		return color;
+	}
+
+	/**
+	 * Colors the interference graph greedily in maximum cardinality search order.
+	 * Interference graphs of SSA programs are chordal, and for chordal graphs the search order is the
+	 * reverse of a perfect elimination order, so the greedy coloring uses the minimum number of colors.
+	 * <p>
+	 * That number is the size of the largest clique. In the search order, each node forms a clique with
+	 * its neighbors visited before it, and every maximal clique is one of these. So before coloring, the
+	 * cheapest nodes of each of these cliques with more than K nodes are spilled.
+	 */
+	private void colorChordal() {
+		int size = interferenceGraph.size();
+		int[] ordering = maximumCardinalitySearch(interferenceGraph);
+		computeSpillCosts();
+		boolean[] visited = new boolean[size];
+		boolean[] spilled = new boolean[size];
+		int[] clique = new int[K + 1];
+		for (int node : ordering) {
+			visited[node] = true;
+			clique[0] = node;
+			int cliqueSize = 1;
+			for (int i = 0; i < interferenceGraph.degree(node); i++) {
+				int neighbor = interferenceGraph.adjacent(node, i);
+				if (!visited[neighbor] || spilled[neighbor]) {
+					continue;
+				}
+				if (cliqueSize == clique.length) {
+					clique = Arrays.copyOf(clique, cliqueSize * 2);
+				}
+				clique[cliqueSize++] = neighbor;
+			}
+			while (cliqueSize > K) {
+				int cheapest = 0;
+				for (int i = 1; i < cliqueSize; i++) {
+					if (spillCosts[clique[i]] < spillCosts[clique[cheapest]]) {
+						cheapest = i;
+					}
 				}
+				spilled[clique[cheapest]] = true;
+				spilledNodes.add(clique[cheapest]);
+				clique[cheapest] = clique[--cliqueSize];
 			}
-			weights.remove(maxNode);
 		}
-		
-		for (Node node : eliminationOrdering.reversed()) {
-			selectStack.push(node);
+
+		int[] coloring = new int[size];
+		Arrays.fill(coloring, -1);
+		// usedBy[c] == node iff a neighbor of node has color c
+		int[] usedBy = new int[K + 1];
+		Arrays.fill(usedBy, -1);
+		for (int node : ordering) {
+			if (spilled[node]) {
+				continue;
+			}
+			for (int i = 0; i < interferenceGraph.degree(node); i++) {
+				int color = coloring[interferenceGraph.adjacent(node, i)];
+				if (color >= 0) {
+					usedBy[color] = node;
+				}
+			}
+			int color = chooseColor(node, coloring, usedBy);
+			if (color < K) {
+				coloring[node] = color;
+			} else {
+				// only if forbidden colors are left, or the graph is not chordal after all
+				spilledNodes.add(node);
+			}
 		}
+		assignRegisters(coloring);
 	}
 
 	/**
-	 * Helper method for maximum cardinality search, returns a node of maximal weight
-	 * @param weights List of weights for each node
-	 * @return Node with maximum weight
+	 * Performs maximum cardinality search on the interference graph in O(n + e).
+	 * Unvisited nodes are kept in buckets by the number of their visited neighbors, each bucket is a doubly
+	 * linked list, so moving a node to the next bucket and taking a node of maximum weight are O(1).
+	 * @param graph the graph to search
+	 * @return the nodes in visiting order, which is a reverse simplicial elimination ordering if the graph is chordal
 	 */
-	private Node findMaxWeightNode(Map<Node, Integer> weights) {
+	private static int[] maximumCardinalitySearch(InterferenceGraph graph) {
+		int size = graph.size();
+		int[] weights = new int[size];
+		int[] next = new int[size];
+		int[] previous = new int[size];
+		int[] buckets = new int[size + 1];
+		Arrays.fill(buckets, -1);
+		for (int node = 0; node < size; node++) {
+			link(node, 0, buckets, next, previous);
+		}
+		boolean[] visited = new boolean[size];
+		int[] ordering = new int[size];
 		int maximum = 0;
-		Node maxNode = null;
-		for (Node node : weights.keySet()) {
-			if (weights.get(node) > maximum || maxNode == null) {
-				maximum = weights.get(node);
-				maxNode = node;
+		for (int i = 0; i < size; i++) {
+			while (buckets[maximum] == -1) {
+				maximum--;
+			}
+			int node = buckets[maximum];
+			unlink(node, maximum, buckets, next, previous);
+			visited[node] = true;
+			ordering[i] = node;
+			for (int j = 0; j < graph.degree(node); j++) {
+				int neighbor = graph.adjacent(node, j);
+				if (!visited[neighbor]) {
+					unlink(neighbor, weights[neighbor], buckets, next, previous);
+					weights[neighbor]++;
+					link(neighbor, weights[neighbor], buckets, next, previous);
+					maximum = Math.max(maximum, weights[neighbor]);
+				}
 			}
 		}
-		return maxNode;
+		return ordering;
+	}
+
+	private static void link(int node, int bucket, int[] buckets, int[] next, int[] previous) {
+		next[node] = buckets[bucket];
+		previous[node] = -1;
+		if (buckets[bucket] != -1) {
+			previous[buckets[bucket]] = node;
+		}
+		buckets[bucket] = node;
+	}
+
+	private static void unlink(int node, int bucket, int[] buckets, int[] next, int[] previous) {
+		if (previous[node] != -1) {
+			next[previous[node]] = next[node];
+		} else {
+			buckets[bucket] = next[node];
+		}
+		if (next[node] != -1) {
+			previous[next[node]] = previous[node];
+		}
 	}
 
 	/**
 	 * Assign colors to registers
-	 * @param colors
-	 * @param registers
+	 * @param coloring the color of each node, or -1 if it has none
 	 */
-	private void assignRegisters(Map<Node, Integer> coloring) {
-		Map<Integer, Register> registerMap = new HashMap<>();
-		Iterator<AsmRegister> iter = ASM_REGISTERS.REGISTERS.iterator();
-		for (int i = 0; i < K; i++) {
-			registerMap.putIfAbsent(i, iter.next());
+	private void assignRegisters(int[] coloring) {
+		for (int node = 0; node < coloring.length; node++) {
+			if (coloring[node] >= 0) {
+				locations[node] = LirOperand.physical(ASM_REGISTERS.REGISTERS.get(coloring[node]));
+			}
 		}
-		for (Node node : coloring.keySet()) {
-			int num = coloring.get(node);
-			registerAllocation.putIfAbsent(node, registerMap.get(num));
+	}
+
+	/**
+	 * Assigns stack slots to the spilled nodes. Slots are colored like registers, but there is no limit
+	 * on their number, so two spilled nodes only get different slots if they interfere.
+	 */
+	private void assignStackSlots() {
+		int[] slots = new int[interferenceGraph.size()];
+		Arrays.fill(slots, -1);
+		// usedBy[s] == node iff a spilled neighbor of node is in slot s
+		int[] usedBy = new int[spilledNodes.size() + 1];
+		Arrays.fill(usedBy, -1);
+		for (int node : spilledNodes) {
+			for (int i = 0; i < interferenceGraph.degree(node); i++) {
+				int slot = slots[alias(interferenceGraph.adjacent(node, i))];
+				if (slot >= 0) {
+					usedBy[slot] = node;
+				}
+			}
+			int slot = 0;
+			while (usedBy[slot] == node) {
+				slot++;
+			}
+			slots[node] = slot;
+		}
+		for (int node = 0; node < slots.length; node++) {
+			int slot = slots[alias(node)];
+			if (slot >= 0) {
+				locations[node] = LirOperand.stackSlot(slot);
+			}
 		}
 	}
 
-	// TODO:
 	private void simplify() {
-		Iterator<Node> it = simplifyWorklist.iterator();
-        if (it.hasNext()) {
-            Node n = it.next();
-            it.remove();
-            selectStack.push(n);
-            for (Node m : interferenceGraph.getAdjacents(n)) {
-                if (interferenceGraph.degree(m) < K && spillWorklist.contains(m)) {
-                    spillWorklist.remove(m);
-                    simplifyWorklist.add(m);
-                }
-            }
-        }
-
-		/*while (!simplifyWorklist.isEmpty()) {
-			Node n = simplifyWorklist.iterator().next();
-			simplifyWorklist.remove(n);
-			selectStack.push(n);
-			
-			for (Node m : interferenceGraph.getAdjacents(n)) {
-				int degree = interferenceGraph.degree(m);
-				if (degree == K) {
-					spillWorklist.remove(m);
-					simplifyWorklist.add(m);
-				}
+		int node = simplifyWorklist.pop();
+		if (states[node] != NodeState.SIMPLIFY) {
+			return;
+		}
+		states[node] = NodeState.SELECTED;
+		selectStack.push(node);
+		for (int i = 0; i < interferenceGraph.degree(node); i++) {
+			int neighbor = interferenceGraph.adjacent(node, i);
+			if (isInGraph(neighbor)) {
+				decrementDegree(neighbor);
+			}
+		}
+	}
+
+	private void decrementDegree(int node) {
+		if (degrees[node]-- != K) {
+			return;
+		}
+		// the moves of the node and its neighbors may be coalescable now
+		enableMoves(node);
+		for (int i = 0; i < interferenceGraph.degree(node); i++) {
+			int neighbor = interferenceGraph.adjacent(node, i);
+			if (isInGraph(neighbor)) {
+				enableMoves(neighbor);
+			}
+		}
+		if (states[node] == NodeState.SPILL) {
+			if (isMoveRelated(node)) {
+				states[node] = NodeState.FREEZE;
+				freezeWorklist.push(node);
+			} else {
+				states[node] = NodeState.SIMPLIFY;
+				simplifyWorklist.push(node);
+			}
+		}
+	}
+
+	private void enableMoves(int node) {
+		for (int i = 0; i < moveListSizes[node]; i++) {
+			int move = moveLists[node][i];
+			if (moveStates[move] == MoveState.ACTIVE) {
+				moveStates[move] = MoveState.WORKLIST;
+				worklistMoves.push(move);
 			}
-		}*/
+		}
 	}
 
-	// TODO
 	private void coalesce() {
-		for (Node u : interferenceGraph.getNodes()) {
-			for (Node v : interferenceGraph.getAdjacents(u)) {
-				if (canCoalesce(u, v)) {
-					Set<Node> neighbors = new HashSet<>(interferenceGraph.getAdjacents(u));
-					neighbors.addAll(interferenceGraph.getAdjacents(v));
-					interferenceGraph.getAdjList().remove(u);
-					interferenceGraph.getAdjList().remove(v);
-					
-					
-					coalescedNodes.put(u, v);
+		int move = worklistMoves.pop();
+		if (moveStates[move] != MoveState.WORKLIST) {
+			return;
+		}
+		int u = alias(moveDestinations.get(move));
+		int v = alias(moveSources.get(move));
+		if (u == v) {
+			moveStates[move] = MoveState.COALESCED;
+			coalescedMoves++;
+			addToSimplifyWorklist(u);
+		} else if (interferenceGraph.interferes(u, v)) {
+			moveStates[move] = MoveState.CONSTRAINED;
+			addToSimplifyWorklist(u);
+			addToSimplifyWorklist(v);
+		} else if (george(u, v) || briggs(u, v)) {
+			moveStates[move] = MoveState.COALESCED;
+			coalescedMoves++;
+			combine(u, v);
+			addToSimplifyWorklist(u);
+		} else {
+			moveStates[move] = MoveState.ACTIVE;
+		}
+	}
+
+	/**
+	 * Moves a node whose moves are all done to the simplify worklist, if its degree is insignificant.
+	 */
+	private void addToSimplifyWorklist(int node) {
+		if (states[node] == NodeState.FREEZE && !isMoveRelated(node) && degrees[node] < K) {
+			states[node] = NodeState.SIMPLIFY;
+			simplifyWorklist.push(node);
+		}
+	}
+
+	/**
+	 * George's test: merging v into u is safe if every neighbor of v either has insignificant degree,
+	 * so it can always be colored, or already interferes with u, and v has no forbidden colors u does not have.
+	 */
+	private boolean george(int u, int v) {
+		if ((forbiddenColors[v] & ~forbiddenColors[u]) != 0) {
+			return false;
+		}
+		for (int i = 0; i < interferenceGraph.degree(v); i++) {
+			int neighbor = interferenceGraph.adjacent(v, i);
+			if (isInGraph(neighbor) && degrees[neighbor] >= K && !interferenceGraph.interferes(neighbor, u)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Briggs' test: merging u and v is safe if the merged node has fewer than K neighbors of significant
+	 * degree, counting forbidden colors as such neighbors, as it can always be colored once its other
+	 * neighbors are removed.
+	 */
+	private boolean briggs(int u, int v) {
+		mark++;
+		int significant = Integer.bitCount(forbiddenColors[u] | forbiddenColors[v]);
+		for (int node : new int[] {u, v}) {
+			for (int i = 0; i < interferenceGraph.degree(node); i++) {
+				int neighbor = interferenceGraph.adjacent(node, i);
+				if (isInGraph(neighbor) && marks[neighbor] != mark) {
+					marks[neighbor] = mark;
+					if (degrees[neighbor] >= K && ++significant >= K) {
+						return false;
+					}
 				}
 			}
 		}
+		return true;
+	}
+
+	/**
+	 * Merges v into u, u inherits the moves, neighbors and accesses of v.
+	 */
+	private void combine(int u, int v) {
+		states[v] = NodeState.COALESCED;
+		alias[v] = u;
+		for (int i = 0; i < moveListSizes[v]; i++) {
+			appendMove(u, moveLists[v][i]);
+		}
+		enableMoves(v);
+		accesses[u] += accesses[v];
+		degrees[u] += Integer.bitCount(forbiddenColors[v] & ~forbiddenColors[u]);
+		forbiddenColors[u] |= forbiddenColors[v];
+		if (preferredColors[u] < 0 || (forbiddenColors[u] & 1 << preferredColors[u]) != 0) {
+			preferredColors[u] = preferredColors[v];
+		}
+		for (int i = 0; i < interferenceGraph.degree(v); i++) {
+			int neighbor = interferenceGraph.adjacent(v, i);
+			if (!isInGraph(neighbor)) {
+				continue;
+			}
+			if (interferenceGraph.addEdge(neighbor, u)) {
+				degrees[neighbor]++;
+				degrees[u]++;
+			}
+			decrementDegree(neighbor);
+		}
+		if (degrees[u] >= K && states[u] == NodeState.FREEZE) {
+			addToSpillWorklist(u);
+		} else if (states[u] == NodeState.SPILL) {
+			// the old entry becomes stale, as its cost no longer matches
+			addToSpillWorklist(u);
+		}
 	}
 
-	private boolean canCoalesce(Node u, Node v) {
-		Set<Node> combinedNeighbors = new HashSet<>(interferenceGraph.getAdjacents(u));
-		combinedNeighbors.addAll(interferenceGraph.getAdjacents(v));
-		return combinedNeighbors.size() < K;
+	private void freeze() {
+		int node = freezeWorklist.pop();
+		if (states[node] != NodeState.FREEZE) {
+			return;
+		}
+		states[node] = NodeState.SIMPLIFY;
+		simplifyWorklist.push(node);
+		freezeMoves(node);
 	}
 
-	private void spill() {
-		Node spill = spillWorklist.iterator().next();
-        spillWorklist.remove(spill);
-        simplifyWorklist.add(spill);
-        spilledNodes.add(spill);
-		/* 
-		while (!spillWorklist.isEmpty()) {
-			Node n = spillWorklist.iterator().next();
-			spillWorklist.remove(n);
-			
-			simplify();
-			
-			if (!simplifyWorklist.isEmpty()) {
-				// Mark node for spilling
-				spilledNodes.add(n);
+	/**
+	 * Gives up on coalescing the moves of a node.
+	 */
+	private void freezeMoves(int node) {
+		for (int i = 0; i < moveListSizes[node]; i++) {
+			int move = moveLists[node][i];
+			if (moveStates[move] != MoveState.ACTIVE && moveStates[move] != MoveState.WORKLIST) {
+				continue;
+			}
+			moveStates[move] = MoveState.FROZEN;
+			int partner = alias(moveDestinations.get(move)) == alias(node)
+				? alias(moveSources.get(move))
+				: alias(moveDestinations.get(move));
+			addToSimplifyWorklist(partner);
+		}
+	}
+
+	private void selectSpill() {
+		SpillCandidate candidate = spillWorklist.poll();
+		if (states[candidate.node()] != NodeState.SPILL || candidate.cost() != spillCosts[candidate.node()]) {
+			return;
+		}
+		// spilled optimistically, it is only spilled actually if it finds no color
+		states[candidate.node()] = NodeState.SIMPLIFY;
+		simplifyWorklist.push(candidate.node());
+		freezeMoves(candidate.node());
+	}
+
+	private void addToSpillWorklist(int node) {
+		states[node] = NodeState.SPILL;
+		spillCosts[node] = spillCost(node);
+		spillWorklist.add(new SpillCandidate(spillCosts[node], node));
+	}
+
+	private boolean isMoveRelated(int node) {
+		for (int i = 0; i < moveListSizes[node]; i++) {
+			MoveState state = moveStates[moveLists[node][i]];
+			if (state == MoveState.ACTIVE || state == MoveState.WORKLIST) {
+				return true;
 			}
-		}*/
+		}
+		return false;
+	}
+
+	private boolean isInGraph(int node) {
+		return states[node] != NodeState.SELECTED && states[node] != NodeState.COALESCED;
+	}
+
+	private int alias(int node) {
+		while (alias[node] != node) {
+			node = alias[node];
+		}
+		return node;
+	}
+
+	private enum NodeState {
+		SIMPLIFY, FREEZE, SPILL, COALESCED, SELECTED
+	}
+
+	private enum MoveState {
+		WORKLIST, ACTIVE, COALESCED, CONSTRAINED, FROZEN
+	}
+
+	private record SpillCandidate(double cost, int node) implements Comparable<SpillCandidate> {
+		@Override
+		public int compareTo(SpillCandidate other) {
+			return Double.compare(cost, other.cost);
+		}
+	}
+
+	/**
+	 * A growable stack of node or move indices.
+	 */
+	private static final class IntStack {
+		private int[] elements = new int[16];
+		private int size;
+
+		void push(int element) {
+			if (size == elements.length) {
+				elements = Arrays.copyOf(elements, size * 2);
+			}
+			elements[size++] = element;
+		}
+
+		int pop() {
+			return elements[--size];
+		}
+
+		int get(int index) {
+			return elements[index];
+		}
+
+		int size() {
+			return size;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
 	}
 
 }
@@ -0,0 +1,56 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Selects between alternative implementations of backend phases.
+ * @param liveness the liveness analysis used by the register allocator
+ * @param allocator the algorithm the register allocator colors the interference graph with
+ * @param peephole the rules the peephole pass applies after register allocation
+ */
+public record BackendOptions(LivenessAlgorithm liveness, AllocatorAlgorithm allocator, Set<PeepholeRule> peephole) {
+	public static final BackendOptions DEFAULT = new BackendOptions(
+		LivenessAlgorithm.DATAFLOW, AllocatorAlgorithm.COLORING, EnumSet.allOf(PeepholeRule.class));
+
+	public BackendOptions {
+		// an enum set iterates in declaration order, which is the order the rules are tried in
+		EnumSet<PeepholeRule> rules = EnumSet.noneOf(PeepholeRule.class);
+		rules.addAll(peephole);
+		peephole = Collections.unmodifiableSet(rules);
+	}
+
+	public enum LivenessAlgorithm {
+		/** Iterates the dataflow equations to a fixpoint, see {@link LivenessAnalysis}. */
+		DATAFLOW,
+		/** Explores the paths from each use back to its definition, see {@link SsaLiveness}. */
+		SSA;
+
+		Liveness create() {
+			return switch (this) {
+				case DATAFLOW -> new LivenessAnalysis();
+				case SSA -> new SsaLiveness();
+			};
+		}
+	}
+
+	public enum AllocatorAlgorithm {
+		/** Simplifies the graph by removing nodes of degree less than K and colors them in reverse order. */
+		COLORING,
+		/** Colors greedily in maximum cardinality search order, which is optimal for chordal SSA interference graphs. */
+		CHORDAL,
+	}
+
+	public BackendOptions withLiveness(LivenessAlgorithm liveness) {
+		return new BackendOptions(liveness, this.allocator, this.peephole);
+	}
+
+	public BackendOptions withAllocator(AllocatorAlgorithm allocator) {
+		return new BackendOptions(this.liveness, allocator, this.peephole);
+	}
+
+	public BackendOptions withPeephole(Set<PeepholeRule> peephole) {
+		return new BackendOptions(this.liveness, this.allocator, peephole);
+	}
+}
@@ -1,143 +1,94 @@
 package edu.kit.kastel.vads.compiler.backend.asm;
 
-import edu.kit.kastel.vads.compiler.backend.regalloc.Register;
+import edu.kit.kastel.vads.compiler.CompilerStats;
+import edu.kit.kastel.vads.compiler.CompilerStats.Measurement;
+import edu.kit.kastel.vads.compiler.CompilerStats.Phase;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
-import edu.kit.kastel.vads.compiler.ir.node.AddNode;
-import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
-import edu.kit.kastel.vads.compiler.ir.node.Block;
-import edu.kit.kastel.vads.compiler.ir.node.ConstIntNode;
-import edu.kit.kastel.vads.compiler.ir.node.DivNode;
-import edu.kit.kastel.vads.compiler.ir.node.ModNode;
-import edu.kit.kastel.vads.compiler.ir.node.MulNode;
-import edu.kit.kastel.vads.compiler.ir.node.Node;
-import edu.kit.kastel.vads.compiler.ir.node.Phi;
-import edu.kit.kastel.vads.compiler.ir.node.ProjNode;
-import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
-import edu.kit.kastel.vads.compiler.ir.node.StartNode;
-import edu.kit.kastel.vads.compiler.ir.node.SubNode;
 
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
-import static edu.kit.kastel.vads.compiler.ir.util.NodeSupport.predecessorSkipProj;
+import java.util.stream.Collectors;
 
 public class CodeGenerator {
-	
-	public String generateCode(List<IrGraph> program) {
-		StringBuilder builder = new StringBuilder();
-		for (IrGraph graph : program) {
-			System.out.println(graph);
-			AsmRegisterAllocator allocator = new AsmRegisterAllocator();
-			Map<Node, Register> registers = allocator.allocateRegisters(graph);
-			for (var entry : registers.entrySet()) {
-				System.out.println("Node " + entry.getKey().toString() + " → " + entry.getValue());
-			}
-			builder.append(".global main")
-				.append("\n")
-				.append(".global _main")
-				.append("\n")
-				.append(".text")
-				.append("\n\n");
-
-			builder.append("main:")
-				.append("\n")
-				.append("call _main")
-				.append("\n");
-			builder.append("movq %rax, %rdi")
-				.append("\n")
-				.append("movq $0x3C, %rax")
-				.append("\n")
-				.append("syscall")
-				.append("\n\n");
 
-			builder.append("_main:")
-				.append("\n");
+	private final CompilerStats stats;
+	private final BackendOptions options;
 
-			generateForGraph(graph, builder, registers);
-			builder.append("\n");
-		}
-
-		return builder.toString();
+	public CodeGenerator() {
+		this(CompilerStats.DISABLED, BackendOptions.DEFAULT);
 	}
 
-	private void generateForGraph(IrGraph graph, StringBuilder builder, Map<Node, Register> registers) {
-		Set<Node> visited = new HashSet<>();
-		scan(graph.endBlock(), visited, builder, registers);
+	/**
+	 * @param stats receives the time spent in instruction selection, register allocation, the peephole pass
+	 * and emission
+	 * @param options selects the implementations of the backend phases
+	 */
+	public CodeGenerator(CompilerStats stats, BackendOptions options) {
+		this.stats = stats;
+		this.options = options;
+	}
+	
+	public String generateCode(List<IrGraph> program) {
+		// functions are independent of each other, the stream keeps them in source order
+		return generateProgram(program.parallelStream().map(this::generateFunction).toList());
 	}
 
-	private void scan(Node node, Set<Node> visited, StringBuilder builder, Map<Node, Register> registers) {
-		for (Node predecessor : node.predecessors()) {
-			if (visited.add(predecessor)) {
-				scan(predecessor, visited, builder, registers);
-			}
-		}
+	/**
+	 * Assembles the program from functions generated by {@link #generateFunction(IrGraph)}
+	 * @param functions the assembly of each function, in source order
+	 * @return the assembly of the whole program
+	 */
+	public String generateProgram(List<String> functions) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(".global main")
+			.append("\n")
+			.append(".global _main")
+			.append("\n")
+			.append(".text")
+			.append("\n\n");
 
-		switch (node) {
-			case AddNode add -> binary(builder, registers, add, "add");
-			case SubNode sub -> binary(builder, registers, sub, "sub");
-			case MulNode mul -> binary(builder, registers, mul, "imul");
-			//case DivNode div -> binary(builder, registers, div, "idiv");
-			case DivNode div -> {
-                Register left = registers.get(predecessorSkipProj(div, BinaryOperationNode.LEFT));
-                Register right = registers.get(predecessorSkipProj(div, BinaryOperationNode.RIGHT));
-                builder.append("  movq ").append(left).append(", %rax\n")
-                       .append("  cqto\n")
-                       .append("  idivq ").append(right).append("\n")
-                       .append("  movq %rax, ").append(registers.get(div)).append("\n");
-            }
-			case ModNode mod -> {
-			Register left = registers.get(predecessorSkipProj(mod, BinaryOperationNode.LEFT));
-			Register right = registers.get(predecessorSkipProj(mod, BinaryOperationNode.RIGHT));
-			Register dest = registers.get(mod);
+		builder.append("main:")
+			.append("\n")
+			.append("call _main")
+			.append("\n");
+		builder.append("movq %rax, %rdi")
+			.append("\n")
+			.append("movq $0x3C, %rax")
+			.append("\n")
+			.append("syscall")
+			.append("\n\n");
 
-			builder.append("  movq ").append(left).append(", %rax\n");
-			builder.append("  cqto\n");  
-			builder.append("  idivq ").append(right).append("\n");
-			builder.append("  movq %rdx, ").append(dest); 
-			}
-			case ReturnNode r -> builder.repeat(" ", 2)
-				.append("movq")
-				.append(" ")
-				.append(registers.get(predecessorSkipProj(r, ReturnNode.RESULT)))
-				.append(", ")
-				.append("%rax")
-				.append("\n")
-				.append("  ")
-				.append("ret")
-				.append("\n");
-				//.append(registers.get(predecessorSkipProj(r, ReturnNode.RESULT)));
-            case ConstIntNode c -> builder.repeat(" ", 2)
-                .append("movq")
-				.append(" ")
-				.append("$" + c.value())
-				.append(", ")
-				.append(registers.get(c));
-			//case ConstIntNode c -> binaryAssignment(builder, registers, c, "mov");
-            case Phi _ -> throw new UnsupportedOperationException("phi");
-            case Block _, ProjNode _, StartNode _ -> {
-                // do nothing, skip line break
-                return;
-			}
-			default -> { return; }
+		return functions.stream().collect(Collectors.joining("\n", builder, "\n"));
+	}
 
+	/**
+	 * Selects the instructions of a single function, allocates registers for them, cleans them up with the
+	 * peephole pass and prints them.
+	 * This does not depend on any other function, so it is safe to call concurrently for different graphs.
+	 * @param graph the function
+	 * @return the assembly of the function
+	 */
+	public String generateFunction(IrGraph graph) {
+		LirFunction function = selectInstructions(graph);
+		int[] locations = new AsmRegisterAllocator(stats, options).allocateRegisters(function);
+		LirFunction allocated;
+		try (Measurement _ = stats.measure(Phase.EMISSION)) {
+			allocated = new RegisterRewriter(function, locations).rewrite();
+		}
+		try (Measurement _ = stats.measure(Phase.PEEPHOLE)) {
+			new Peephole(options.peephole(), stats).optimize(allocated);
+		}
+		try (Measurement _ = stats.measure(Phase.EMISSION)) {
+			return LirPrinter.print(allocated);
+		}
+	}
+
+	/**
+	 * @param graph the function
+	 * @return the instructions of the function on virtual registers, before register allocation
+	 */
+	public LirFunction selectInstructions(IrGraph graph) {
+		try (Measurement _ = stats.measure(Phase.INSTRUCTION_SELECTION)) {
+			return new InstructionSelector(graph).select();
 		}
-		builder.append("\n");
 	}
-	
-	private static void binary(
-        StringBuilder builder,
-        Map<Node, Register> registers,
-        BinaryOperationNode node,
-        String opcode
-    ) {
-		builder.repeat(" ", 2)
-			.append(opcode)
-			.append(" ")
-			.append(registers.get(predecessorSkipProj(node, BinaryOperationNode.RIGHT)))
-			.append(", ")
-			.append(registers.get(predecessorSkipProj(node, BinaryOperationNode.LEFT)));
-    }
-			
 }
@@ -0,0 +1,179 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.kastel.vads.compiler.ir.IrGraph;
+import edu.kit.kastel.vads.compiler.ir.node.AddNode;
+import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
+import edu.kit.kastel.vads.compiler.ir.node.Block;
+import edu.kit.kastel.vads.compiler.ir.node.ConstIntNode;
+import edu.kit.kastel.vads.compiler.ir.node.DivNode;
+import edu.kit.kastel.vads.compiler.ir.node.ModNode;
+import edu.kit.kastel.vads.compiler.ir.node.MulNode;
+import edu.kit.kastel.vads.compiler.ir.node.Node;
+import edu.kit.kastel.vads.compiler.ir.node.Phi;
+import edu.kit.kastel.vads.compiler.ir.node.ProjNode;
+import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
+import edu.kit.kastel.vads.compiler.ir.node.StartNode;
+import edu.kit.kastel.vads.compiler.ir.node.SubNode;
+
+import static edu.kit.kastel.vads.compiler.ir.util.NodeSupport.predecessorSkipProj;
+
+/**
+ * Lowers the nodes of a function to a {@link LirFunction}, in the order of its {@link Schedule}.
+ * Each value gets its own virtual register, constants are folded into the instructions as immediates.
+ * <p>
+ * x86 arithmetic is two-address: the destination is also the left operand. So the left operand is moved
+ * to the destination first, and the allocator removes the move by coalescing the two where it can. For the
+ * commutative operations, the operand that is not used afterwards is moved, as only that one can share a
+ * register with the result.
+ * <p>
+ * Division has fixed operands, the dividend and quotient are in RAX and the remainder in RDX. The selector
+ * only defines these registers right before the division and reads the results right after it, no virtual
+ * register is defined in between. So it suffices for the allocator to keep values live across the
+ * instructions defining RAX and RDX out of them.
+ */
+final class InstructionSelector {
+	static final AsmRegister RAX = new AsmRegister("RAX");
+	static final AsmRegister RDX = new AsmRegister("RDX");
+	/** Never allocated, so it is free for the constant divisor and for accessing stack slots. */
+	static final AsmRegister SCRATCH = new AsmRegister("R11");
+
+	private final IrGraph graph;
+	private final LirFunction function;
+	// the virtual register of each value by node id, or -1 if it has none yet
+	private final int[] registers;
+	// the position of the last node in the schedule using each value by node id, or -1 if it is unused
+	private final int[] lastUses;
+	private int position;
+
+	InstructionSelector(IrGraph graph) {
+		this.graph = graph;
+		this.function = new LirFunction(graph.name());
+		this.registers = new int[graph.nodeCount()];
+		this.lastUses = new int[graph.nodeCount()];
+		Arrays.fill(this.registers, -1);
+		Arrays.fill(this.lastUses, -1);
+	}
+
+	LirFunction select() {
+		List<Node> schedule = Schedule.of(graph);
+		for (int i = 0; i < schedule.size(); i++) {
+			Node node = schedule.get(i);
+			for (int j = 0; j < node.predecessorCount(); j++) {
+				lastUses[predecessorSkipProj(node, j).id()] = i;
+			}
+		}
+		for (position = 0; position < schedule.size(); position++) {
+			select(schedule.get(position));
+		}
+		return function;
+	}
+
+	private void select(Node node) {
+		switch (node) {
+			case AddNode add -> commutative(add, LirOpcode.ADD);
+			case SubNode sub -> binary(sub, LirOpcode.SUB,
+				predecessorSkipProj(sub, BinaryOperationNode.LEFT), predecessorSkipProj(sub, BinaryOperationNode.RIGHT));
+			case MulNode mul -> multiplication(mul);
+			case DivNode div -> division(div, RAX);
+			case ModNode mod -> division(mod, RDX);
+			case ReturnNode r -> {
+				move(predecessorSkipProj(r, ReturnNode.RESULT), LirOperand.physical(RAX));
+				function.append(LirOpcode.RET);
+			}
+			case Phi _ -> throw new UnsupportedOperationException("phi");
+			case Block _, ProjNode _, StartNode _, ConstIntNode _ -> {
+				// do nothing, constants are emitted as immediates where they are used
+			}
+		}
+	}
+
+	/**
+	 * Swaps the operands if only the left one is used afterwards, or if it is a constant.
+	 */
+	private void commutative(BinaryOperationNode node, LirOpcode opcode) {
+		Node left = predecessorSkipProj(node, BinaryOperationNode.LEFT);
+		Node right = predecessorSkipProj(node, BinaryOperationNode.RIGHT);
+		if (!(right instanceof ConstIntNode) && (left instanceof ConstIntNode || usedLater(left) && !usedLater(right))) {
+			binary(node, opcode, right, left);
+		} else {
+			binary(node, opcode, left, right);
+		}
+	}
+
+	/**
+	 * Multiplication by a constant has a three-address form, which saves the move.
+	 */
+	private void multiplication(MulNode node) {
+		Node left = predecessorSkipProj(node, BinaryOperationNode.LEFT);
+		Node right = predecessorSkipProj(node, BinaryOperationNode.RIGHT);
+		if (left instanceof ConstIntNode && !(right instanceof ConstIntNode)) {
+			Node swap = left;
+			left = right;
+			right = swap;
+		}
+		if (right instanceof ConstIntNode constant && !(left instanceof ConstIntNode)) {
+			function.append(LirOpcode.IMUL_IMMEDIATE, LirOperand.IMMEDIATE, operand(left), register(node), constant.value());
+		} else {
+			commutative(node, LirOpcode.IMUL);
+		}
+	}
+
+	/**
+	 * Emits {@code node = left op right} as a move and a two-address instruction.
+	 */
+	private void binary(Node node, LirOpcode opcode, Node left, Node right) {
+		int destination = register(node);
+		move(left, destination);
+		append(opcode, right, destination);
+	}
+
+	/**
+	 * @param result RAX for the quotient or RDX for the remainder
+	 */
+	private void division(BinaryOperationNode node, AsmRegister result) {
+		move(predecessorSkipProj(node, BinaryOperationNode.LEFT), LirOperand.physical(RAX));
+		function.append(LirOpcode.CLTD);
+		Node divisor = predecessorSkipProj(node, BinaryOperationNode.RIGHT);
+		if (divisor instanceof ConstIntNode) {
+			// idivl takes no immediate
+			move(divisor, LirOperand.physical(SCRATCH));
+			function.append(LirOpcode.IDIV, LirOperand.physical(SCRATCH));
+		} else {
+			function.append(LirOpcode.IDIV, operand(divisor));
+		}
+		function.append(LirOpcode.MOV, LirOperand.physical(result), register(node));
+	}
+
+	private void move(Node value, int destination) {
+		append(LirOpcode.MOV, value, destination);
+	}
+
+	private void append(LirOpcode opcode, Node source, int destination) {
+		int immediate = source instanceof ConstIntNode constant ? constant.value() : 0;
+		function.append(opcode, operand(source), destination, LirOperand.NONE, immediate);
+	}
+
+	/**
+	 * @return the virtual register of a value, or an immediate if it is a constant
+	 */
+	private int operand(Node value) {
+		if (value instanceof ConstIntNode) {
+			return LirOperand.IMMEDIATE;
+		}
+		return register(value);
+	}
+
+	private int register(Node value) {
+		if (registers[value.id()] < 0) {
+			registers[value.id()] = function.newVirtualRegister();
+		}
+		return registers[value.id()];
+	}
+
+	private boolean usedLater(Node value) {
+		return lastUses[value.id()] > position;
+	}
+}
@@ -1,40 +1,140 @@
 package edu.kit.kastel.vads.compiler.backend.asm;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
-import edu.kit.kastel.vads.compiler.ir.node.Node;
+import java.util.Arrays;
 
 /**
  * Represents liveness interference between variables.
+ * <p>
+ * Nodes are the numbers of the virtual registers, from 0 to the size of the graph.
+ * Membership is tested in a triangular bit matrix, neighbors are iterated over growable {@code int[]}
+ * adjacency lists. For graphs too large for a matrix, membership falls back to a hash set of edges.
  */
 public class InterferenceGraph {
+	/** The matrix for this many nodes takes 16 MiB, larger graphs use the hash set. */
+	private static final int MAX_MATRIX_NODES = 1 << 14;
+	private static final int[] NO_ADJACENTS = new int[0];
 
-	private Map<Node, Set<Node>> adjList = new HashMap<>();
+	private final int size;
+	private final int[][] adjacents;
+	private final int[] degrees;
+	private long edgeCount;
 
-		public void addEdge(Node u, Node v) {
-			if (!u.equals(v)) {
-				adjList.computeIfAbsent(u, k -> new HashSet<>()).add(v);
-				adjList.computeIfAbsent(v, k -> new HashSet<>()).add(u);
-			}
+	// either the lower triangle of the adjacency matrix, or an open addressing set of edge keys
+	private final boolean useMatrix;
+	private final long[] matrix;
+	private long[] edgeTable;
+
+	public InterferenceGraph(int size) {
+		this.size = size;
+		this.adjacents = new int[size][];
+		Arrays.fill(this.adjacents, NO_ADJACENTS);
+		this.degrees = new int[size];
+		this.useMatrix = size <= MAX_MATRIX_NODES;
+		this.matrix = new long[useMatrix ? (int) ((triangleIndex(size, 0) + 63) >>> 6) : 0];
+		this.edgeTable = new long[useMatrix ? 0 : 1 << 16];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds an edge between two different nodes.
+	 * @return whether the edge was not present before
+	 */
+	public boolean addEdge(int u, int v) {
+		if (u == v || !addMembership(Math.max(u, v), Math.min(u, v))) {
+			return false;
 		}
+		append(u, v);
+		append(v, u);
+		edgeCount++;
+		return true;
+	}
 
-		public Set<Node> getNodes() {
-			return adjList.keySet();
+	public boolean interferes(int u, int v) {
+		if (u == v) {
+			return false;
+		}
+		int high = Math.max(u, v);
+		int low = Math.min(u, v);
+		if (useMatrix) {
+			long bit = triangleIndex(high, low);
+			return (matrix[(int) (bit >>> 6)] & (1L << bit)) != 0;
 		}
+		return edgeTable[slot(edgeKey(high, low))] != 0;
+	}
+
+	public int degree(int node) {
+		return degrees[node];
+	}
+
+	/**
+	 * @return the {@code i}-th neighbor of the node, for {@code 0 <= i < degree(node)}
+	 */
+	public int adjacent(int node, int i) {
+		return adjacents[node][i];
+	}
 
-		public int degree(Node node) {
-			return adjList.get(node).size();
-		} 
+	public long edgeCount() {
+		return edgeCount;
+	}
 
-		public Set<Node> getAdjacents(Node node) {
-			return adjList.getOrDefault(node, new HashSet<>());
+	private void append(int node, int adjacent) {
+		int[] list = adjacents[node];
+		if (degrees[node] == list.length) {
+			list = Arrays.copyOf(list, Math.max(4, list.length * 2));
+			adjacents[node] = list;
 		}
+		list[degrees[node]++] = adjacent;
+	}
+
+	private boolean addMembership(int high, int low) {
+		if (useMatrix) {
+			long bit = triangleIndex(high, low);
+			long word = matrix[(int) (bit >>> 6)];
+			matrix[(int) (bit >>> 6)] = word | (1L << bit);
+			return (word & (1L << bit)) == 0;
+		}
+		long key = edgeKey(high, low);
+		int slot = slot(key);
+		if (edgeTable[slot] != 0) {
+			return false;
+		}
+		edgeTable[slot] = key;
+		// grow at a load factor of one half, edgeCount is not yet incremented for this edge
+		if ((edgeCount + 1) * 2 > edgeTable.length) {
+			long[] old = edgeTable;
+			edgeTable = new long[old.length * 2];
+			for (long existing : old) {
+				if (existing != 0) {
+					edgeTable[slot(existing)] = existing;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static long triangleIndex(int high, int low) {
+		return (long) high * (high - 1) / 2 + low;
+	}
+
+	/**
+	 * @return a key that is never 0, which marks empty slots
+	 */
+	private static long edgeKey(int high, int low) {
+		return ((long) high << 32 | low) + 1;
+	}
 
-		public Map<Node, Set<Node>> getAdjList() {
-			return adjList;
+	/**
+	 * @return the slot containing the key, or the empty slot it would be inserted at
+	 */
+	private int slot(long key) {
+		int mask = edgeTable.length - 1;
+		int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+		while (edgeTable[slot] != 0 && edgeTable[slot] != key) {
+			slot = (slot + 1) & mask;
 		}
-	
+		return slot;
+	}
 }
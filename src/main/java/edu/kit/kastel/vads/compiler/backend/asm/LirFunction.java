@@ -0,0 +1,327 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+import java.util.Arrays;
+
+/**
+ * The machine-level IR of a function: a linear list of x86 instructions (see {@link LirOpcode}) on
+ * virtual registers, physical registers, stack slots and immediates (see {@link LirOperand}), split into
+ * basic blocks.
+ * <p>
+ * The {@link InstructionSelector} produces it with a virtual register for each value, the
+ * {@link AsmRegisterAllocator} analyzes and colors it, the {@link RegisterRewriter} replaces the virtual
+ * registers by their locations, the {@link Peephole} pass cleans up the result, and the {@link LirPrinter}
+ * finally prints it in AT&T syntax.
+ * <p>
+ * Instructions are stored in parallel arrays indexed by the position of the instruction, so passes over
+ * them neither allocate nor chase pointers. A block is the range of instructions from its start up to the
+ * start of the next block. Control flows from the end of a block only along the edges added with
+ * {@link #addEdge(int, int)}, there is no implicit fall-through. A block can start with phis, which
+ * define their destination on entry from the source for the predecessor the block was entered from.
+ * L1 has no control flow, so the {@link InstructionSelector} only produces the entry block and no phis,
+ * and neither jumps nor the lowering of phis to moves exist yet. Only the liveness analyses handle blocks
+ * and phis so far.
+ */
+public final class LirFunction {
+	/** The maximum number of operands of an instruction. */
+	public static final int MAX_OPERANDS = 3;
+	private static final LirOpcode[] OPCODES = LirOpcode.values();
+	private static final int[] EMPTY = new int[0];
+
+	private final String name;
+	private int[] opcodes = new int[64];
+	private int[] operands = new int[64 * MAX_OPERANDS];
+	private int[] immediates = new int[64];
+	private int size;
+	private int[] blockStarts = new int[4];
+	private int blockCount;
+	private int[][] predecessors = new int[4][];
+	private int[] predecessorCounts = new int[4];
+	private int[][] successors = new int[4][];
+	private int[] successorCounts = new int[4];
+	// per block, each phi is its destination followed by one source per predecessor
+	private int[][] phis = new int[4][];
+	private int[] phiCounts = new int[4];
+	private int virtualRegisterCount;
+	private int frameSize;
+
+	/**
+	 * Creates a function consisting of an empty entry block.
+	 * @param name the name of the function
+	 */
+	public LirFunction(String name) {
+		this.name = name;
+		startBlock();
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * @return a new virtual register operand
+	 */
+	public int newVirtualRegister() {
+		return LirOperand.virtual(virtualRegisterCount++);
+	}
+
+	/**
+	 * @return the number of virtual registers, they are numbered from 0
+	 */
+	public int virtualRegisterCount() {
+		return virtualRegisterCount;
+	}
+
+	/**
+	 * Starts a new block, the following instructions are appended to it.
+	 * @return the number of the block
+	 */
+	public int startBlock() {
+		if (blockCount == blockStarts.length) {
+			blockStarts = Arrays.copyOf(blockStarts, blockCount * 2);
+			predecessors = Arrays.copyOf(predecessors, blockCount * 2);
+			predecessorCounts = Arrays.copyOf(predecessorCounts, blockCount * 2);
+			successors = Arrays.copyOf(successors, blockCount * 2);
+			successorCounts = Arrays.copyOf(successorCounts, blockCount * 2);
+			phis = Arrays.copyOf(phis, blockCount * 2);
+			phiCounts = Arrays.copyOf(phiCounts, blockCount * 2);
+		}
+		blockStarts[blockCount] = size;
+		predecessors[blockCount] = EMPTY;
+		successors[blockCount] = EMPTY;
+		phis[blockCount] = EMPTY;
+		return blockCount++;
+	}
+
+	/**
+	 * Adds a control flow edge from the end of one block to the start of another.
+	 * @throws IllegalStateException if the successor already has phis, which have a source per predecessor
+	 */
+	public void addEdge(int predecessor, int successor) {
+		if (phiCounts[successor] > 0) {
+			throw new IllegalStateException("block " + successor + " already has phis");
+		}
+		predecessors[successor] = add(predecessors[successor], predecessorCounts[successor]++, predecessor);
+		successors[predecessor] = add(successors[predecessor], successorCounts[predecessor]++, successor);
+	}
+
+	public int predecessorCount(int block) {
+		return predecessorCounts[block];
+	}
+
+	/**
+	 * @return the {@code index}-th predecessor of the block, in the order the edges were added
+	 */
+	public int predecessor(int block, int index) {
+		return predecessors[block][index];
+	}
+
+	public int successorCount(int block) {
+		return successorCounts[block];
+	}
+
+	/**
+	 * @return the {@code index}-th successor of the block, in the order the edges were added
+	 */
+	public int successor(int block, int index) {
+		return successors[block][index];
+	}
+
+	/**
+	 * Adds a phi to the start of a block, after all edges into the block have been added.
+	 * @param destination the virtual register the phi defines
+	 * @param sources the operand to take for each predecessor, in the order of the predecessors
+	 */
+	public void addPhi(int block, int destination, int... sources) {
+		if (sources.length != predecessorCounts[block]) {
+			throw new IllegalArgumentException("expected " + predecessorCounts[block] + " sources but got "
+				+ sources.length);
+		}
+		int stride = sources.length + 1;
+		int offset = phiCounts[block] * stride;
+		if (offset + stride > phis[block].length) {
+			phis[block] = Arrays.copyOf(phis[block], Math.max(offset + stride, phis[block].length * 2));
+		}
+		phis[block][offset] = destination;
+		System.arraycopy(sources, 0, phis[block], offset + 1, sources.length);
+		phiCounts[block]++;
+	}
+
+	public int phiCount(int block) {
+		return phiCounts[block];
+	}
+
+	/**
+	 * @return the virtual register operand the {@code phi}-th phi of the block defines
+	 */
+	public int phiDestination(int block, int phi) {
+		return phis[block][phi * (predecessorCounts[block] + 1)];
+	}
+
+	/**
+	 * @return the operand the {@code phi}-th phi of the block takes when entered from its
+	 * {@code predecessor}-th predecessor
+	 */
+	public int phiSource(int block, int phi, int predecessor) {
+		return phis[block][phi * (predecessorCounts[block] + 1) + 1 + predecessor];
+	}
+
+	private static int[] add(int[] values, int size, int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, Math.max(2, size * 2));
+		}
+		values[size] = value;
+		return values;
+	}
+
+	public int blockCount() {
+		return blockCount;
+	}
+
+	/**
+	 * @return the position of the first instruction of the block
+	 */
+	public int blockStart(int block) {
+		return blockStarts[block];
+	}
+
+	/**
+	 * @return the position after the last instruction of the block
+	 */
+	public int blockEnd(int block) {
+		return block + 1 < blockCount ? blockStarts[block + 1] : size;
+	}
+
+	/**
+	 * @return the label of the block, the entry block is labeled with the function name
+	 */
+	public String blockLabel(int block) {
+		return block == 0 ? "_" + name : ".L" + name + "_" + block;
+	}
+
+	public void append(LirOpcode opcode) {
+		append(opcode, LirOperand.NONE, LirOperand.NONE, LirOperand.NONE, 0);
+	}
+
+	public void append(LirOpcode opcode, int operand) {
+		append(opcode, operand, LirOperand.NONE, LirOperand.NONE, 0);
+	}
+
+	public void append(LirOpcode opcode, int source, int destination) {
+		append(opcode, source, destination, LirOperand.NONE, 0);
+	}
+
+	/**
+	 * Appends an instruction to the last block.
+	 * @param immediate the value of the {@link LirOperand#IMMEDIATE} operand, if there is one
+	 */
+	public void append(LirOpcode opcode, int first, int second, int third, int immediate) {
+		if (size == opcodes.length) {
+			opcodes = Arrays.copyOf(opcodes, size * 2);
+			operands = Arrays.copyOf(operands, size * 2 * MAX_OPERANDS);
+			immediates = Arrays.copyOf(immediates, size * 2);
+		}
+		opcodes[size] = opcode.ordinal();
+		operands[size * MAX_OPERANDS] = first;
+		operands[size * MAX_OPERANDS + 1] = second;
+		operands[size * MAX_OPERANDS + 2] = third;
+		immediates[size] = immediate;
+		size++;
+	}
+
+	/**
+	 * Replaces the instruction at the given position.
+	 * @param immediate the value of the {@link LirOperand#IMMEDIATE} operand, if there is one
+	 */
+	public void replace(int instruction, LirOpcode opcode, int first, int second, int third, int immediate) {
+		opcodes[instruction] = opcode.ordinal();
+		operands[instruction * MAX_OPERANDS] = first;
+		operands[instruction * MAX_OPERANDS + 1] = second;
+		operands[instruction * MAX_OPERANDS + 2] = third;
+		immediates[instruction] = immediate;
+	}
+
+	/**
+	 * Removes the marked instructions in a single pass, the others keep their order and their blocks.
+	 * @param removed whether to remove the instruction at each position
+	 */
+	public void remove(boolean[] removed) {
+		int kept = 0;
+		int block = 0;
+		for (int i = 0; i < size; i++) {
+			while (block < blockCount && blockStarts[block] == i) {
+				blockStarts[block++] = kept;
+			}
+			if (removed[i]) {
+				continue;
+			}
+			opcodes[kept] = opcodes[i];
+			System.arraycopy(operands, i * MAX_OPERANDS, operands, kept * MAX_OPERANDS, MAX_OPERANDS);
+			immediates[kept] = immediates[i];
+			kept++;
+		}
+		while (block < blockCount) {
+			blockStarts[block++] = kept;
+		}
+		size = kept;
+	}
+
+	/**
+	 * @return the number of instructions
+	 */
+	public int size() {
+		return size;
+	}
+
+	public LirOpcode opcode(int instruction) {
+		return OPCODES[opcodes[instruction]];
+	}
+
+	/**
+	 * @return the {@code index}-th operand of the instruction, or {@link LirOperand#NONE}
+	 */
+	public int operand(int instruction, int index) {
+		return operands[instruction * MAX_OPERANDS + index];
+	}
+
+	public void setOperand(int instruction, int index, int operand) {
+		operands[instruction * MAX_OPERANDS + index] = operand;
+	}
+
+	/**
+	 * @return the number of the virtual register the {@code index}-th operand of the instruction reads,
+	 * or -1 if it reads none
+	 */
+	public int usedRegister(int instruction, int index) {
+		int operand = operand(instruction, index);
+		return LirOperand.isVirtual(operand) && opcode(instruction).uses(index) ? LirOperand.number(operand) : -1;
+	}
+
+	/**
+	 * @return the number of the virtual register the instruction writes, or -1 if it writes none
+	 */
+	public int definedRegister(int instruction) {
+		LirOpcode opcode = opcode(instruction);
+		for (int i = 0; i < opcode.operandCount(); i++) {
+			int operand = operand(instruction, i);
+			if (opcode.defines(i) && LirOperand.isVirtual(operand)) {
+				return LirOperand.number(operand);
+			}
+		}
+		return -1;
+	}
+
+	public int immediate(int instruction) {
+		return immediates[instruction];
+	}
+
+	/**
+	 * @return the size of the stack frame below the saved base pointer, or 0 if the function needs no frame
+	 */
+	public int frameSize() {
+		return frameSize;
+	}
+
+	public void setFrameSize(int frameSize) {
+		this.frameSize = frameSize;
+	}
+}
@@ -0,0 +1,93 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+/**
+ * The instructions of a {@link LirFunction}, all on 32 bit values.
+ * <p>
+ * Operands are in AT&T order, so the destination comes last. Besides their operands, some instructions
+ * implicitly use or define fixed registers, which are given as bit sets over the physical register numbers
+ * of {@link LirOperand}.
+ */
+public enum LirOpcode {
+	/** {@code movl source, destination} */
+	MOV("movl", 2),
+	/** {@code addl source, destination}, the destination is also the left operand */
+	ADD("addl", 2),
+	/** {@code subl source, destination}, the destination is also the left operand */
+	SUB("subl", 2),
+	/** {@code imull source, destination}, the destination is also the left operand and must be a register */
+	IMUL("imull", 2),
+	/** {@code imull $immediate, source, destination}, the destination must be a register */
+	IMUL_IMMEDIATE("imull", 3),
+	/** {@code xorl source, destination}, the destination is also the left operand */
+	XOR("xorl", 2),
+	/** {@code negl destination} */
+	NEG("negl", 1),
+	/** {@code cltd}, sign extends EAX into EDX */
+	CLTD("cltd", 0),
+	/** {@code idivl divisor}, divides EDX:EAX, leaving the quotient in EAX and the remainder in EDX */
+	IDIV("idivl", 1),
+	/** {@code ret}, returning EAX */
+	RET("ret", 0);
+
+	private final String mnemonic;
+	private final int operandCount;
+
+	LirOpcode(String mnemonic, int operandCount) {
+		this.mnemonic = mnemonic;
+		this.operandCount = operandCount;
+	}
+
+	public String mnemonic() {
+		return mnemonic;
+	}
+
+	public int operandCount() {
+		return operandCount;
+	}
+
+	/**
+	 * @return whether the instruction reads its {@code index}-th operand
+	 */
+	public boolean uses(int index) {
+		return switch (this) {
+			case MOV -> index == 0;
+			case IMUL_IMMEDIATE -> index == 1;
+			case ADD, SUB, IMUL, XOR, NEG, IDIV -> index < operandCount;
+			case CLTD, RET -> false;
+		};
+	}
+
+	/**
+	 * @return whether the instruction writes its {@code index}-th operand
+	 */
+	public boolean defines(int index) {
+		return switch (this) {
+			case MOV, ADD, SUB, IMUL, XOR -> index == 1;
+			case IMUL_IMMEDIATE -> index == 2;
+			case NEG -> index == 0;
+			case CLTD, IDIV, RET -> false;
+		};
+	}
+
+	/**
+	 * @return the registers the instruction reads besides its operands
+	 */
+	public int implicitUses() {
+		return switch (this) {
+			case CLTD, RET -> LirOperand.mask(InstructionSelector.RAX);
+			case IDIV -> LirOperand.mask(InstructionSelector.RAX) | LirOperand.mask(InstructionSelector.RDX);
+			default -> 0;
+		};
+	}
+
+	/**
+	 * @return the registers the instruction writes besides its operands
+	 */
+	public int implicitDefinitions() {
+		return switch (this) {
+			case CLTD -> LirOperand.mask(InstructionSelector.RDX);
+			case IDIV -> LirOperand.mask(InstructionSelector.RAX) | LirOperand.mask(InstructionSelector.RDX);
+			default -> 0;
+		};
+	}
+}
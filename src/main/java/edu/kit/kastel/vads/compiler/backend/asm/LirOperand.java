@@ -0,0 +1,95 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+import java.util.List;
+
+/**
+ * Operands of {@link LirFunction} instructions, encoded as a single int so that instructions fit into flat
+ * arrays. The upper bits hold the kind of the operand, the lower bits the number of the virtual register,
+ * physical register or stack slot.
+ * <p>
+ * Physical registers are numbered like in the x86 instruction encoding, so a set of them fits into an int.
+ * Immediates are not encoded in the operand, an immediate operand stands for the immediate value of its
+ * instruction, of which there is at most one.
+ */
+public final class LirOperand {
+	private static final int KIND_SHIFT = 28;
+	private static final int NUMBER_MASK = (1 << KIND_SHIFT) - 1;
+
+	public static final int NONE = 0;
+	private static final int VIRTUAL = 1;
+	private static final int PHYSICAL = 2;
+	private static final int STACK_SLOT = 3;
+	public static final int IMMEDIATE = 4 << KIND_SHIFT;
+
+	/** The physical registers in the order of their x86 encoding. */
+	private static final List<AsmRegister> REGISTERS = List.of(
+		InstructionSelector.RAX,
+		new AsmRegister("RCX"),
+		InstructionSelector.RDX,
+		new AsmRegister("RBX"),
+		new AsmRegister("RSP"),
+		new AsmRegister("RBP"),
+		new AsmRegister("RSI"),
+		new AsmRegister("RDI"),
+		new AsmRegister("R8"),
+		new AsmRegister("R9"),
+		new AsmRegister("R10"),
+		InstructionSelector.SCRATCH,
+		new AsmRegister("R12"),
+		new AsmRegister("R13"),
+		new AsmRegister("R14"),
+		new AsmRegister("R15")
+	);
+
+	private LirOperand() {
+	}
+
+	public static int virtual(int register) {
+		return VIRTUAL << KIND_SHIFT | register;
+	}
+
+	public static int physical(AsmRegister register) {
+		int number = REGISTERS.indexOf(register);
+		if (number < 0) {
+			throw new IllegalArgumentException("unknown register " + register);
+		}
+		return PHYSICAL << KIND_SHIFT | number;
+	}
+
+	public static int stackSlot(int slot) {
+		return STACK_SLOT << KIND_SHIFT | slot;
+	}
+
+	public static boolean isVirtual(int operand) {
+		return operand >>> KIND_SHIFT == VIRTUAL;
+	}
+
+	public static boolean isPhysical(int operand) {
+		return operand >>> KIND_SHIFT == PHYSICAL;
+	}
+
+	public static boolean isStackSlot(int operand) {
+		return operand >>> KIND_SHIFT == STACK_SLOT;
+	}
+
+	/**
+	 * @return the number of the virtual register, physical register or stack slot
+	 */
+	public static int number(int operand) {
+		return operand & NUMBER_MASK;
+	}
+
+	/**
+	 * @return the register of a physical operand
+	 */
+	public static AsmRegister register(int operand) {
+		return REGISTERS.get(number(operand));
+	}
+
+	/**
+	 * @return the set containing the register, as a bit set over the physical register numbers
+	 */
+	public static int mask(AsmRegister register) {
+		return 1 << number(physical(register));
+	}
+}
@@ -0,0 +1,60 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+/**
+ * Prints a {@link LirFunction} as x86 assembly in AT&T syntax.
+ * <p>
+ * If the function has a stack frame, it is set up after the entry label and torn down before each return.
+ * Virtual registers are printed as {@code %v<number>}, which the assembler rejects, but which helps when
+ * looking at the function before register allocation.
+ */
+public final class LirPrinter {
+
+	private LirPrinter() {
+	}
+
+	public static String print(LirFunction function) {
+		StringBuilder builder = new StringBuilder();
+		for (int block = 0; block < function.blockCount(); block++) {
+			builder.append(function.blockLabel(block))
+				.append(":")
+				.append("\n");
+			if (block == 0 && function.frameSize() > 0) {
+				builder.append("  pushq %rbp\n")
+					.append("  movq %rsp, %rbp\n")
+					.append("  subq $").append(function.frameSize()).append(", %rsp\n");
+			}
+			for (int i = function.blockStart(block); i < function.blockEnd(block); i++) {
+				printInstruction(builder, function, i);
+			}
+		}
+		return builder.toString();
+	}
+
+	private static void printInstruction(StringBuilder builder, LirFunction function, int instruction) {
+		LirOpcode opcode = function.opcode(instruction);
+		if (opcode == LirOpcode.RET && function.frameSize() > 0) {
+			builder.append("  leave\n");
+		}
+		builder.repeat(" ", 2)
+			.append(opcode.mnemonic());
+		for (int i = 0; i < opcode.operandCount(); i++) {
+			builder.append(i == 0 ? " " : ", ");
+			printOperand(builder, function.operand(instruction, i), function.immediate(instruction));
+		}
+		builder.append("\n");
+	}
+
+	private static void printOperand(StringBuilder builder, int operand, int immediate) {
+		if (operand == LirOperand.IMMEDIATE) {
+			builder.append("$").append(immediate);
+		} else if (LirOperand.isVirtual(operand)) {
+			builder.append("%v").append(LirOperand.number(operand));
+		} else if (LirOperand.isPhysical(operand)) {
+			builder.append(LirOperand.register(operand).lower32());
+		} else if (LirOperand.isStackSlot(operand)) {
+			builder.append(new StackSlot(LirOperand.number(operand)));
+		} else {
+			throw new IllegalArgumentException("no operand " + operand);
+		}
+	}
+}
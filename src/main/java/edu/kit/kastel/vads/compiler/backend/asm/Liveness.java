@@ -0,0 +1,25 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+/**
+ * Computes the virtual registers live in and live out at each instruction of a {@link LirFunction}.
+ * Control flows from each instruction to the next one in its block, and from the end of a block to the
+ * starts of its successors. A phi defines its destination on entry to its block and uses each source at
+ * the end of the corresponding predecessor. So a register is live from a definition up to the last use
+ * before its next definition, which is what decides whether two registers can share a physical register.
+ * Physical registers are not tracked, see {@link InstructionSelector} for why.
+ * All implementations compute the same sets, they only differ in how they get there.
+ */
+public interface Liveness {
+
+	void analyzeLiveness(LirFunction function);
+
+	/**
+	 * @return the numbers of the virtual registers live before the instruction, in no particular order
+	 */
+	int[] liveIn(int instruction);
+
+	/**
+	 * @return the numbers of the virtual registers live after the instruction, in no particular order
+	 */
+	int[] liveOut(int instruction);
+}
@@ -1,87 +1,283 @@
 package edu.kit.kastel.vads.compiler.backend.asm;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
-import edu.kit.kastel.vads.compiler.ir.IrGraph;
-import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
-import edu.kit.kastel.vads.compiler.ir.node.ConstIntNode;
-import edu.kit.kastel.vads.compiler.ir.node.Node;
-import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
-import edu.kit.kastel.vads.compiler.ir.node.Phi;
-
-import static edu.kit.kastel.vads.compiler.ir.util.NodeSupport.predecessorSkipProj;
-public class LivenessAnalysis {
-	private final Map<Node, Set<Node>> liveIn = new HashMap<>();
-	private final Map<Node, Set<Node>> liveOut = new HashMap<>();
-
-	public void analyzeLiveness(Set<Node> nodes, IrGraph graph) {
-		for (Node node : nodes) {
-			liveIn.put(node, new HashSet<>());
-			liveOut.put(node, new HashSet<>());
-		}
-		boolean changed;
-		do {
-			changed = false;
-			for (Node node : nodes) {
-				Set<Node> in_ = new HashSet<>(liveIn.get(node));
-				Set<Node> out_ = new HashSet<>(liveOut.get(node));
-			
-				Set<Node> def = getDefined(node);
-				Set<Node> use = getUsed(node);
-				
-				Set<Node> newOut = new HashSet<>();
-				for (Node succ : graph.successors(node)) {
-					newOut.addAll(liveIn.getOrDefault(succ, new HashSet<>()));
+import java.util.Arrays;
+
+/**
+ * Computes the virtual registers live in and live out at each instruction, with
+ * {@code out(n) = union of in(s) for all successors s} and {@code in(n) = use(n) + (out(n) - def(n))}.
+ * The successor of an instruction is the next one in its block, the last instruction of a block is followed
+ * by the first instructions of the successor blocks. The phis of a successor block are applied on the edge:
+ * their destinations are removed from its live-in set, and their sources for the edge are added.
+ * <p>
+ * Live sets are sparse bitsets over the virtual register numbers, which only store their non-zero words
+ * together with the word indices. This keeps the memory proportional to the number of live registers.
+ * The fixpoint is computed with a worklist: an instruction is only revisited when the live-in set of one
+ * of its successors changed. The instructions are visited in reverse, so straight-line code needs a
+ * single pass.
+ */
+public class LivenessAnalysis implements Liveness {
+	private static final int[] NO_KEYS = new int[0];
+	private static final long[] NO_WORDS = new long[0];
+
+	private int[][] inKeys = new int[0][];
+	private long[][] inWords = new long[0][];
+	private int[][] outKeys = new int[0][];
+	private long[][] outWords = new long[0][];
+
+	// a dense bitset to compute a single live set in, touched holds the indices of the words written to
+	private long[] scratch = NO_WORDS;
+	private int[] touched = NO_KEYS;
+	private boolean[] isTouched = new boolean[0];
+	private int touchedCount;
+
+	@Override
+	public void analyzeLiveness(LirFunction function) {
+		int count = function.size();
+		int[][] successors = new int[count][];
+		int[] predecessorCounts = new int[count];
+		// the block each instruction ends, or -1 if it is not the last one of its block
+		int[] endedBlocks = new int[count];
+		Arrays.fill(endedBlocks, -1);
+		for (int block = 0; block < function.blockCount(); block++) {
+			int start = function.blockStart(block);
+			int end = function.blockEnd(block);
+			for (int i = start; i + 1 < end; i++) {
+				successors[i] = new int[] {i + 1};
+			}
+			if (start == end) {
+				assert function.predecessorCount(block) == 0 && function.successorCount(block) == 0
+					: "empty block " + block + " with edges";
+				continue;
+			}
+			endedBlocks[end - 1] = block;
+			successors[end - 1] = new int[function.successorCount(block)];
+			for (int s = 0; s < function.successorCount(block); s++) {
+				successors[end - 1][s] = function.blockStart(function.successor(block, s));
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			for (int successor : successors[i]) {
+				predecessorCounts[successor]++;
+			}
+		}
+		int[][] predecessors = invert(successors, predecessorCounts);
+
+		inKeys = new int[count][];
+		inWords = new long[count][];
+		outKeys = new int[count][];
+		outWords = new long[count][];
+		Arrays.fill(inKeys, NO_KEYS);
+		Arrays.fill(inWords, NO_WORDS);
+		scratch = new long[(function.virtualRegisterCount() + 63) >>> 6];
+		touched = new int[scratch.length];
+		isTouched = new boolean[scratch.length];
+
+		// the stack pops the last instruction first, which visits uses before their definitions
+		int[] worklist = new int[count];
+		boolean[] queued = new boolean[count];
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			worklist[size++] = i;
+			queued[i] = true;
+		}
+		while (size > 0) {
+			int instruction = worklist[--size];
+			queued[instruction] = false;
+
+			if (endedBlocks[instruction] >= 0) {
+				blockOut(function, endedBlocks[instruction]);
+			} else {
+				for (int successor : successors[instruction]) {
+					or(inKeys[successor], inWords[successor]);
+				}
+			}
+			outKeys[instruction] = keys();
+			outWords[instruction] = words(outKeys[instruction]);
+			int definition = function.definedRegister(instruction);
+			if (definition >= 0) {
+				scratch[definition >>> 6] &= ~(1L << definition);
+			}
+			for (int i = 0; i < LirFunction.MAX_OPERANDS; i++) {
+				int use = function.usedRegister(instruction, i);
+				if (use >= 0) {
+					set(use);
 				}
+			}
+			int[] newInKeys = keys();
+			long[] newInWords = words(newInKeys);
+			clear();
 
-				Set<Node> newIn = new HashSet<>(use);
-				Set<Node> temp = new HashSet<>(newOut);
-				temp.removeAll(def);
-				newIn.addAll(temp);
+			if (!Arrays.equals(newInKeys, inKeys[instruction]) || !Arrays.equals(newInWords, inWords[instruction])) {
+				inKeys[instruction] = newInKeys;
+				inWords[instruction] = newInWords;
+				for (int predecessor : predecessors[instruction]) {
+					if (!queued[predecessor]) {
+						queued[predecessor] = true;
+						worklist[size++] = predecessor;
+					}
+				}
+			}
+		}
+	}
 
-				liveOut.put(node, newOut);
-				liveIn.put(node, newIn);
+	/**
+	 * Computes the live-out set at the end of the block into the scratch set, from the live-in sets at the
+	 * starts of its successors and their phis.
+	 */
+	private void blockOut(LirFunction function, int block) {
+		for (int s = 0; s < function.successorCount(block); s++) {
+			int successor = function.successor(block, s);
+			int start = function.blockStart(successor);
+			or(inKeys[start], inWords[start]);
+			for (int p = 0; p < function.predecessorCount(successor); p++) {
+				if (function.predecessor(successor, p) != block) {
+					continue;
+				}
+				for (int phi = 0; phi < function.phiCount(successor); phi++) {
+					int source = function.phiSource(successor, phi, p);
+					if (LirOperand.isVirtual(source)) {
+						set(LirOperand.number(source));
+					}
+				}
+			}
+		}
+		// the phi destinations are defined on the edges, unless they are live along another one
+		for (int s = 0; s < function.successorCount(block); s++) {
+			int successor = function.successor(block, s);
+			for (int phi = 0; phi < function.phiCount(successor); phi++) {
+				int destination = LirOperand.number(function.phiDestination(successor, phi));
+				boolean live = false;
+				for (int t = 0; t < function.successorCount(block) && !live; t++) {
+					live = isLiveAlong(function, block, function.successor(block, t), destination);
+				}
+				if (!live) {
+					scratch[destination >>> 6] &= ~(1L << destination);
+				}
+			}
+		}
+	}
 
-				if (!in_.equals(newIn) || !out_.equals(newOut)) {
-					changed = true;
+	/**
+	 * @return whether the register is live at the end of the block because of the edge to the successor
+	 */
+	private boolean isLiveAlong(LirFunction function, int block, int successor, int register) {
+		for (int phi = 0; phi < function.phiCount(successor); phi++) {
+			for (int p = 0; p < function.predecessorCount(successor); p++) {
+				int source = function.phiSource(successor, phi, p);
+				if (function.predecessor(successor, p) == block && LirOperand.isVirtual(source)
+					&& LirOperand.number(source) == register) {
+					return true;
 				}
 			}
-		} while (changed);
-		
+		}
+		for (int phi = 0; phi < function.phiCount(successor); phi++) {
+			if (LirOperand.number(function.phiDestination(successor, phi)) == register) {
+				return false;
+			}
+		}
+		int start = function.blockStart(successor);
+		int key = Arrays.binarySearch(inKeys[start], register >>> 6);
+		return key >= 0 && (inWords[start][key] & 1L << register) != 0;
 	}
 
-	private Set<Node> getDefined(Node node) {
-		Set<Node> defs = new HashSet<>();
-		if (node instanceof BinaryOperationNode || 
-			node instanceof ConstIntNode) {
-			defs.add(node);
+	private static int[][] invert(int[][] edges, int[] counts) {
+		int[][] inverted = new int[edges.length][];
+		for (int i = 0; i < edges.length; i++) {
+			inverted[i] = new int[counts[i]];
 		}
-		return defs;
+		int[] filled = new int[edges.length];
+		for (int i = 0; i < edges.length; i++) {
+			for (int target : edges[i]) {
+				inverted[target][filled[target]++] = i;
+			}
+		}
+		return inverted;
 	}
 
-	private Set<Node> getUsed(Node node) {
-		Set<Node> uses = new HashSet<>();
-		if (node instanceof BinaryOperationNode) {
-			uses.add(predecessorSkipProj(node, BinaryOperationNode.LEFT));
-			uses.add(predecessorSkipProj(node, BinaryOperationNode.RIGHT));
-		} else if (node instanceof ReturnNode) {
-			uses.add(predecessorSkipProj(node, ReturnNode.RESULT));
-		} else if (node instanceof Phi) {
-			for (Node pred : node.predecessors()) {
-				uses.add(pred);
+	private void or(int[] keys, long[] words) {
+		for (int i = 0; i < keys.length; i++) {
+			touch(keys[i]);
+			scratch[keys[i]] |= words[i];
+		}
+	}
+
+	private void set(int bit) {
+		touch(bit >>> 6);
+		scratch[bit >>> 6] |= 1L << bit;
+	}
+
+	private void touch(int key) {
+		if (!isTouched[key]) {
+			isTouched[key] = true;
+			touched[touchedCount++] = key;
+		}
+	}
+
+	/**
+	 * Sorts the touched words and returns the keys of the non-zero ones.
+	 */
+	private int[] keys() {
+		Arrays.sort(touched, 0, touchedCount);
+		int nonZero = 0;
+		for (int i = 0; i < touchedCount; i++) {
+			if (scratch[touched[i]] != 0) {
+				nonZero++;
+			}
+		}
+		if (nonZero == 0) {
+			return NO_KEYS;
+		}
+		int[] keys = new int[nonZero];
+		int k = 0;
+		for (int i = 0; i < touchedCount; i++) {
+			if (scratch[touched[i]] != 0) {
+				keys[k++] = touched[i];
+			}
+		}
+		return keys;
+	}
+
+	private long[] words(int[] keys) {
+		if (keys.length == 0) {
+			return NO_WORDS;
+		}
+		long[] words = new long[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			words[i] = scratch[keys[i]];
+		}
+		return words;
+	}
+
+	private void clear() {
+		for (int i = 0; i < touchedCount; i++) {
+			scratch[touched[i]] = 0;
+			isTouched[touched[i]] = false;
+		}
+		touchedCount = 0;
+	}
+
+	private static int[] toArray(int[] keys, long[] words) {
+		int size = 0;
+		for (long word : words) {
+			size += Long.bitCount(word);
+		}
+		int[] registers = new int[size];
+		int k = 0;
+		for (int i = 0; i < keys.length; i++) {
+			for (long word = words[i]; word != 0; word &= word - 1) {
+				registers[k++] = (keys[i] << 6) + Long.numberOfTrailingZeros(word);
 			}
 		}
-		return uses;
+		return registers;
 	}
 
-	public Map<Node, Set<Node>> getLiveIn() {
-		return liveIn;
+	@Override
+	public int[] liveIn(int instruction) {
+		return toArray(inKeys[instruction], inWords[instruction]);
 	}
 
-	public Map<Node, Set<Node>> getLiveOut() {
-		return liveOut;
+	@Override
+	public int[] liveOut(int instruction) {
+		return toArray(outKeys[instruction], outWords[instruction]);
 	}
 }
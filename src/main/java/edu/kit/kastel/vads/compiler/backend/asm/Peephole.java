@@ -0,0 +1,179 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+import java.util.Set;
+
+import edu.kit.kastel.vads.compiler.CompilerStats;
+
+/**
+ * Cleans up the instructions of a {@link LirFunction} after register allocation with the enabled
+ * {@link PeepholeRule}s, which the instruction selector and the spill code leave room for as they handle
+ * one node or instruction at a time.
+ * <p>
+ * Each rule looks at an instruction and at most {@link #WINDOW} instructions after it in the same block.
+ * The rules are applied in passes over the function until a pass changes nothing, as removing an
+ * instruction can make its neighbors match. Removed instructions are only marked during a pass and
+ * compacted away at its end.
+ */
+final class Peephole {
+	/** The number of instructions a rule may look ahead. */
+	static final int WINDOW = 4;
+
+	private final Set<PeepholeRule> rules;
+	private final CompilerStats stats;
+	private LirFunction function = new LirFunction("");
+	private boolean[] removed = new boolean[0];
+	private int blockEnd;
+
+	/**
+	 * @param rules the rules to apply, in the order of their declaration
+	 * @param stats receives the number of applications of each rule
+	 */
+	Peephole(Set<PeepholeRule> rules, CompilerStats stats) {
+		this.rules = rules;
+		this.stats = stats;
+	}
+
+	void optimize(LirFunction function) {
+		this.function = function;
+		long[] applications = new long[PeepholeRule.values().length];
+		boolean changed = !rules.isEmpty();
+		while (changed) {
+			changed = false;
+			removed = new boolean[function.size()];
+			for (int block = 0; block < function.blockCount(); block++) {
+				blockEnd = function.blockEnd(block);
+				for (int i = function.blockStart(block); i < blockEnd; i++) {
+					for (PeepholeRule rule : rules) {
+						if (!removed[i] && apply(rule, i)) {
+							applications[rule.ordinal()]++;
+							changed = true;
+						}
+					}
+				}
+			}
+			function.remove(removed);
+		}
+		for (PeepholeRule rule : rules) {
+			stats.count(rule.counter(), applications[rule.ordinal()]);
+		}
+	}
+
+	/**
+	 * @return whether the rule removed or replaced an instruction
+	 */
+	private boolean apply(PeepholeRule rule, int instruction) {
+		LirOpcode opcode = function.opcode(instruction);
+		int first = function.operand(instruction, 0);
+		int second = function.operand(instruction, 1);
+		int immediate = function.immediate(instruction);
+		return switch (rule) {
+			case SELF_MOVE -> opcode == LirOpcode.MOV && first == second && remove(instruction);
+			case RELOAD -> opcode == LirOpcode.MOV && reload(instruction, first, second, immediate);
+			case DEAD_MOVE -> opcode == LirOpcode.MOV && isDead(instruction, second) && remove(instruction);
+			case ZERO_IDIOM -> {
+				if (opcode != LirOpcode.MOV || first != LirOperand.IMMEDIATE || immediate != 0
+					|| !LirOperand.isPhysical(second)) {
+					yield false;
+				}
+				function.replace(instruction, LirOpcode.XOR, second, second, LirOperand.NONE, 0);
+				yield true;
+			}
+			case IDENTITY -> identity(instruction, opcode, first, immediate);
+		};
+	}
+
+	/**
+	 * Removes the next instruction if it moves the destination of the given move back to its source,
+	 * or if it repeats the move.
+	 */
+	private boolean reload(int instruction, int source, int destination, int immediate) {
+		int next = next(instruction);
+		if (next < 0 || function.opcode(next) != LirOpcode.MOV) {
+			return false;
+		}
+		int nextSource = function.operand(next, 0);
+		int nextDestination = function.operand(next, 1);
+		boolean back = nextSource == destination && nextDestination == source;
+		boolean repeated = nextSource == source && nextDestination == destination
+			&& (source != LirOperand.IMMEDIATE || function.immediate(next) == immediate);
+		return (back || repeated) && remove(next);
+	}
+
+	/**
+	 * @return whether the location is overwritten or dead before it is read again, within the window
+	 */
+	private boolean isDead(int instruction, int location) {
+		int next = instruction;
+		for (int i = 0; i < WINDOW; i++) {
+			next = next(next);
+			if (next < 0) {
+				return false;
+			}
+			if (reads(next, location)) {
+				return false;
+			}
+			// returning reads nothing but EAX
+			if (writes(next, location) || function.opcode(next) == LirOpcode.RET) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean reads(int instruction, int location) {
+		LirOpcode opcode = function.opcode(instruction);
+		for (int k = 0; k < opcode.operandCount(); k++) {
+			if (opcode.uses(k) && function.operand(instruction, k) == location) {
+				return true;
+			}
+		}
+		return LirOperand.isPhysical(location) && (opcode.implicitUses() & 1 << LirOperand.number(location)) != 0;
+	}
+
+	private boolean writes(int instruction, int location) {
+		LirOpcode opcode = function.opcode(instruction);
+		for (int k = 0; k < opcode.operandCount(); k++) {
+			if (opcode.defines(k) && function.operand(instruction, k) == location) {
+				return true;
+			}
+		}
+		return LirOperand.isPhysical(location)
+			&& (opcode.implicitDefinitions() & 1 << LirOperand.number(location)) != 0;
+	}
+
+	private boolean identity(int instruction, LirOpcode opcode, int first, int immediate) {
+		if (first != LirOperand.IMMEDIATE) {
+			return false;
+		}
+		return switch (opcode) {
+			case ADD, SUB -> immediate == 0 && remove(instruction);
+			case IMUL -> immediate == 1 && remove(instruction);
+			case IMUL_IMMEDIATE -> {
+				if (immediate != 1) {
+					yield false;
+				}
+				function.replace(instruction, LirOpcode.MOV,
+					function.operand(instruction, 1), function.operand(instruction, 2), LirOperand.NONE, 0);
+				yield true;
+			}
+			default -> false;
+		};
+	}
+
+	/**
+	 * @return the next instruction in the same block that is not removed, or -1 if there is none
+	 */
+	private int next(int instruction) {
+		for (int i = instruction + 1; i < blockEnd; i++) {
+			if (!removed[i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean remove(int instruction) {
+		removed[instruction] = true;
+		return true;
+	}
+}
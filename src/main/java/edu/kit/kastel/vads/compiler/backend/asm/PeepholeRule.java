@@ -0,0 +1,29 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+import edu.kit.kastel.vads.compiler.CompilerStats.Counter;
+
+/**
+ * The rewrite rules of the {@link Peephole} pass, each counts its applications in its own counter.
+ */
+public enum PeepholeRule {
+	/** Removes {@code movl x, x}. */
+	SELF_MOVE(Counter.PEEPHOLE_SELF_MOVES),
+	/** Removes a move right after a move between the same operands, in either direction. */
+	RELOAD(Counter.PEEPHOLE_RELOADS),
+	/** Removes a move whose destination is overwritten or dead before it is read. */
+	DEAD_MOVE(Counter.PEEPHOLE_DEAD_MOVES),
+	/** Replaces {@code movl $0, r} by the shorter {@code xorl r, r}. */
+	ZERO_IDIOM(Counter.PEEPHOLE_ZERO_IDIOMS),
+	/** Removes additions and subtractions of 0 and multiplications by 1, turning the three-address form into a move. */
+	IDENTITY(Counter.PEEPHOLE_IDENTITIES);
+
+	private final Counter counter;
+
+	PeepholeRule(Counter counter) {
+		this.counter = counter;
+	}
+
+	Counter counter() {
+		return counter;
+	}
+}
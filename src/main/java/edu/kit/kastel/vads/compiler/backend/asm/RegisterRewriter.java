@@ -0,0 +1,98 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+/**
+ * Replaces the virtual registers of a {@link LirFunction} by the locations the {@link AsmRegisterAllocator}
+ * assigned them, which yields a function the {@link LirPrinter} can print as valid assembly.
+ * <p>
+ * Moves between the same locations are dropped, which is where coalesced moves disappear. At most one
+ * operand of an instruction may be in memory and the destination of {@code imull} must be a register, so
+ * instructions breaking these rules after spilling go through R11, which is never allocated. The stack
+ * frame is sized to hold all stack slots.
+ * <p>
+ * Phis are not lowered to moves, as the {@link InstructionSelector} only produces a single block without
+ * phis for now. The blocks and their edges are copied as they are.
+ */
+final class RegisterRewriter {
+	private static final int SCRATCH = LirOperand.physical(InstructionSelector.SCRATCH);
+
+	private final LirFunction function;
+	private final int[] locations;
+	private final LirFunction rewritten;
+
+	/**
+	 * @param locations the location of each virtual register, as a physical register or stack slot operand
+	 */
+	RegisterRewriter(LirFunction function, int[] locations) {
+		this.function = function;
+		this.locations = locations;
+		this.rewritten = new LirFunction(function.name());
+	}
+
+	LirFunction rewrite() {
+		int slots = 0;
+		for (int location : locations) {
+			if (LirOperand.isStackSlot(location)) {
+				slots = Math.max(slots, LirOperand.number(location) + 1);
+			}
+		}
+		// aligned to 16 bytes
+		rewritten.setFrameSize((slots * StackSlot.SIZE + 15) & -16);
+
+		for (int block = 0; block < function.blockCount(); block++) {
+			if (block > 0) {
+				rewritten.startBlock();
+			}
+			for (int i = function.blockStart(block); i < function.blockEnd(block); i++) {
+				rewrite(i);
+			}
+		}
+		for (int block = 0; block < function.blockCount(); block++) {
+			for (int s = 0; s < function.successorCount(block); s++) {
+				rewritten.addEdge(block, function.successor(block, s));
+			}
+		}
+		return rewritten;
+	}
+
+	private void rewrite(int instruction) {
+		LirOpcode opcode = function.opcode(instruction);
+		int first = location(function.operand(instruction, 0));
+		int second = location(function.operand(instruction, 1));
+		int third = location(function.operand(instruction, 2));
+		int immediate = function.immediate(instruction);
+		switch (opcode) {
+			case MOV -> {
+				if (first == second) {
+					return;
+				}
+				if (LirOperand.isStackSlot(first) && LirOperand.isStackSlot(second)) {
+					rewritten.append(LirOpcode.MOV, first, SCRATCH);
+					first = SCRATCH;
+				}
+				rewritten.append(LirOpcode.MOV, first, second, LirOperand.NONE, immediate);
+			}
+			case ADD, SUB, IMUL -> {
+				if (LirOperand.isStackSlot(second) && (opcode == LirOpcode.IMUL || LirOperand.isStackSlot(first))) {
+					rewritten.append(LirOpcode.MOV, second, SCRATCH);
+					rewritten.append(opcode, first, SCRATCH, LirOperand.NONE, immediate);
+					rewritten.append(LirOpcode.MOV, SCRATCH, second);
+				} else {
+					rewritten.append(opcode, first, second, LirOperand.NONE, immediate);
+				}
+			}
+			case IMUL_IMMEDIATE -> {
+				if (LirOperand.isStackSlot(third)) {
+					rewritten.append(opcode, first, second, SCRATCH, immediate);
+					rewritten.append(LirOpcode.MOV, SCRATCH, third);
+				} else {
+					rewritten.append(opcode, first, second, third, immediate);
+				}
+			}
+			default -> rewritten.append(opcode, first, second, third, immediate);
+		}
+	}
+
+	private int location(int operand) {
+		return LirOperand.isVirtual(operand) ? locations[LirOperand.number(operand)] : operand;
+	}
+}
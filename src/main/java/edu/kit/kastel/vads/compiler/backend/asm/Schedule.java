@@ -0,0 +1,53 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import edu.kit.kastel.vads.compiler.ir.IrGraph;
+import edu.kit.kastel.vads.compiler.ir.node.Node;
+
+/**
+ * The order in which the {@link InstructionSelector} lowers the nodes of a function.
+ * <p>
+ * The instructions keep this order, so liveness and therefore the interference of values depends on it.
+ */
+public final class Schedule {
+
+	private Schedule() {
+	}
+
+	/**
+	 * Orders the nodes reachable from the end block in post-order, so every node comes after all of its
+	 * predecessors. The graph is traversed iteratively, as deep expression trees overflow the call stack.
+	 * @param graph the function
+	 * @return the nodes in emission order, ending with the end block
+	 */
+	public static List<Node> of(IrGraph graph) {
+		List<Node> order = new ArrayList<>();
+		boolean[] visited = new boolean[graph.nodeCount()];
+		// each frame is a node together with the index of the next predecessor to visit
+		Deque<Node> nodes = new ArrayDeque<>();
+		Deque<Integer> next = new ArrayDeque<>();
+		visited[graph.endBlock().id()] = true;
+		nodes.push(graph.endBlock());
+		next.push(0);
+		while (!nodes.isEmpty()) {
+			Node node = nodes.peek();
+			int index = next.pop();
+			while (index < node.predecessorCount() && visited[node.predecessor(index).id()]) {
+				index++;
+			}
+			if (index < node.predecessorCount()) {
+				visited[node.predecessor(index).id()] = true;
+				next.push(index + 1);
+				nodes.push(node.predecessor(index));
+				next.push(0);
+			} else {
+				order.add(nodes.pop());
+			}
+		}
+		return order;
+	}
+}
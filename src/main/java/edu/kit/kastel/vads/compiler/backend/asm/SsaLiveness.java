@@ -0,0 +1,184 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+import java.util.Arrays;
+
+/**
+ * Computes liveness by exploring the paths from each use back to the definitions, instead of iterating to
+ * a fixpoint, following Brandner et al., "Computing Liveness Sets for SSA-Form Programs".
+ * <p>
+ * The uses of each register are collected into use lists first, then the registers are handled one at a
+ * time. From each use, the walk goes backwards through the instructions of the block, marking the register
+ * live-out and live-in, until it reaches a definition. At the start of a block it stops if a phi of the
+ * block defines the register, and continues at the end of each predecessor otherwise. A phi source is used
+ * at the end of the predecessor it belongs to, so its walk starts there. The walk also stops where the
+ * register is already marked live, so each register is marked at most once per instruction and block, and
+ * the work is linear in the size of the live sets.
+ * <p>
+ * In SSA form, the walks stop at the single definition of each value. The two-address instructions redefine
+ * their destination right after the move into it, so the walks stop at the nearest definition instead,
+ * which is what keeps the result the same as that of {@link LivenessAnalysis}.
+ */
+public class SsaLiveness implements Liveness {
+	private static final int[] NO_REGISTERS = new int[0];
+
+	private int[][] liveIn = new int[0][];
+	private int[] liveInSizes = new int[0];
+	private int[][] liveOut = new int[0][];
+	private int[] liveOutSizes = new int[0];
+
+	private LirFunction function = new LirFunction("");
+	// the block of each instruction
+	private int[] blocks = NO_REGISTERS;
+	// the register plus one each instruction and block was last marked live for, so they never need clearing
+	private int[] markedIn = NO_REGISTERS;
+	private int[] markedOut = NO_REGISTERS;
+	private int[] markedEntry = NO_REGISTERS;
+	// the blocks whose ends the current register is live at but which are not walked yet
+	private int[] pending = NO_REGISTERS;
+	private int pendingCount;
+
+	@Override
+	public void analyzeLiveness(LirFunction function) {
+		this.function = function;
+		int count = function.size();
+		int registers = function.virtualRegisterCount();
+		liveIn = new int[count][];
+		liveInSizes = new int[count];
+		liveOut = new int[count][];
+		liveOutSizes = new int[count];
+		Arrays.fill(liveIn, NO_REGISTERS);
+		Arrays.fill(liveOut, NO_REGISTERS);
+		blocks = new int[count];
+		markedIn = new int[count];
+		markedOut = new int[count];
+		markedEntry = new int[function.blockCount()];
+
+		// the use lists in compressed form: the uses of register r are at uses[useStarts[r]..useStarts[r + 1]],
+		// for phis the predecessor whose end the source is used at
+		int[] useStarts = new int[registers + 1];
+		int[] phiUseStarts = new int[registers + 1];
+		for (int block = 0; block < function.blockCount(); block++) {
+			for (int i = function.blockStart(block); i < function.blockEnd(block); i++) {
+				blocks[i] = block;
+				for (int k = 0; k < LirFunction.MAX_OPERANDS; k++) {
+					int register = function.usedRegister(i, k);
+					if (register >= 0) {
+						useStarts[register + 1]++;
+					}
+				}
+			}
+			for (int phi = 0; phi < function.phiCount(block); phi++) {
+				for (int p = 0; p < function.predecessorCount(block); p++) {
+					int source = function.phiSource(block, phi, p);
+					if (LirOperand.isVirtual(source)) {
+						phiUseStarts[LirOperand.number(source) + 1]++;
+					}
+				}
+			}
+		}
+		for (int r = 0; r < registers; r++) {
+			useStarts[r + 1] += useStarts[r];
+			phiUseStarts[r + 1] += phiUseStarts[r];
+		}
+		int[] uses = new int[useStarts[registers]];
+		int[] phiUses = new int[phiUseStarts[registers]];
+		int[] useCounts = new int[registers];
+		int[] phiUseCounts = new int[registers];
+		for (int i = 0; i < count; i++) {
+			for (int k = 0; k < LirFunction.MAX_OPERANDS; k++) {
+				int register = function.usedRegister(i, k);
+				if (register >= 0) {
+					uses[useStarts[register] + useCounts[register]++] = i;
+				}
+			}
+		}
+		for (int block = 0; block < function.blockCount(); block++) {
+			for (int phi = 0; phi < function.phiCount(block); phi++) {
+				for (int p = 0; p < function.predecessorCount(block); p++) {
+					int source = function.phiSource(block, phi, p);
+					if (LirOperand.isVirtual(source)) {
+						int register = LirOperand.number(source);
+						phiUses[phiUseStarts[register] + phiUseCounts[register]++] = function.predecessor(block, p);
+					}
+				}
+			}
+		}
+
+		for (int register = 0; register < registers; register++) {
+			int mark = register + 1;
+			for (int u = useStarts[register]; u < useStarts[register + 1]; u++) {
+				int use = uses[u];
+				// a walk that passed the use already covered everything above it
+				if (markedIn[use] != mark) {
+					markedIn[use] = mark;
+					liveIn[use] = add(liveIn[use], liveInSizes[use]++, register);
+					walk(register, blocks[use], use);
+				}
+			}
+			for (int u = phiUseStarts[register]; u < phiUseStarts[register + 1]; u++) {
+				pending = add(pending, pendingCount++, phiUses[u]);
+			}
+			while (pendingCount > 0) {
+				int block = pending[--pendingCount];
+				walk(register, block, function.blockEnd(block));
+			}
+		}
+	}
+
+	/**
+	 * Marks the register live on the way up from the given instruction, where it is live-in, to its
+	 * definition, and queues the predecessors if the start of the block is reached.
+	 * The predecessors are walked by the caller, which keeps the recursion out of loops in the control flow.
+	 * @param from the instruction the register is live-in at, or the end of the block
+	 */
+	private void walk(int register, int block, int from) {
+		int mark = register + 1;
+		for (int i = from - 1; i >= function.blockStart(block); i--) {
+			if (markedOut[i] == mark) {
+				return;
+			}
+			markedOut[i] = mark;
+			liveOut[i] = add(liveOut[i], liveOutSizes[i]++, register);
+			// a walk from a use at the instruction already went on from here
+			if (function.definedRegister(i) == register || markedIn[i] == mark) {
+				return;
+			}
+			markedIn[i] = mark;
+			liveIn[i] = add(liveIn[i], liveInSizes[i]++, register);
+		}
+		if (markedEntry[block] == mark || isPhiDestination(block, register)) {
+			return;
+		}
+		markedEntry[block] = mark;
+		for (int p = 0; p < function.predecessorCount(block); p++) {
+			pending = add(pending, pendingCount++, function.predecessor(block, p));
+		}
+	}
+
+	private boolean isPhiDestination(int block, int register) {
+		for (int phi = 0; phi < function.phiCount(block); phi++) {
+			if (LirOperand.number(function.phiDestination(block, phi)) == register) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[] add(int[] registers, int size, int register) {
+		if (size == registers.length) {
+			registers = Arrays.copyOf(registers, Math.max(4, size * 2));
+		}
+		registers[size] = register;
+		return registers;
+	}
+
+	@Override
+	public int[] liveIn(int instruction) {
+		return Arrays.copyOf(liveIn[instruction], liveInSizes[instruction]);
+	}
+
+	@Override
+	public int[] liveOut(int instruction) {
+		return Arrays.copyOf(liveOut[instruction], liveOutSizes[instruction]);
+	}
+}
@@ -0,0 +1,23 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+import edu.kit.kastel.vads.compiler.backend.regalloc.Register;
+
+/**
+ * A spilled value, stored in the stack frame below the saved base pointer.
+ * @param index the number of the slot, slot 0 is closest to the base pointer
+ */
+public record StackSlot(int index) implements Register {
+	public static final int SIZE = 8;
+
+	/**
+	 * @return the distance of this slot below the base pointer
+	 */
+	public int offset() {
+		return (index + 1) * SIZE;
+	}
+
+	@Override
+	public String toString() {
+		return "-" + offset() + "(%rbp)";
+	}
+}
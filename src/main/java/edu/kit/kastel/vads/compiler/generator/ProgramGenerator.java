@@ -0,0 +1,204 @@
+package edu.kit.kastel.vads.compiler.generator;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/// Generates large, valid L1 programs for benchmarks and scaling tests.
+///
+/// A generated program consists of a single `main` function that
+/// 1. declares and initializes all variables,
+/// 2. assigns to them in `statements` plain or compound assignments, and
+/// 3. returns the sum of all variables, so every variable is used at the end.
+///
+/// Every variable starts from a literal, so [edu.kit.kastel.vads.compiler.ir.optimize.ConstantFolding] folds the
+/// whole program to a single constant. Without folding, every variable stays live until the end.
+/// Expressions are nested up to the configured depth, with operators drawn from the operator mix.
+/// The divisor of `/` and `%` is always a literal that is neither `0` nor `-1`,
+/// so the generated programs never trap at runtime.
+/// The output only depends on the [Shape], including its seed.
+public final class ProgramGenerator {
+    private static final String OPERATORS = "+-*/%";
+
+    private final Shape shape;
+    private final Random random;
+    private final StringBuilder builder = new StringBuilder();
+
+    private ProgramGenerator(Shape shape) {
+        this.shape = shape;
+        this.random = new Random(shape.seed());
+    }
+
+    /// The parameters of a generated program.
+    ///
+    /// @param statements the number of assignments
+    /// @param variables the number of variables, all of them are used by the return
+    /// @param depth the maximum nesting depth of an expression
+    /// @param operators the operator mix, each of `+-*/%` is picked with a weight according to how often it occurs,
+    ///                  e.g. `"+-*//%%"` makes half of all operators a division or modulo
+    /// @param seed the seed for the random choices
+    public record Shape(int statements, int variables, int depth, String operators, long seed) {
+        public static final Shape DEFAULT = new Shape(1000, 16, 3, OPERATORS, 0);
+
+        public Shape {
+            if (statements < 0 || variables < 1 || depth < 0) {
+                throw new IllegalArgumentException("statements and depth must not be negative, "
+                    + "and there must be at least one variable");
+            }
+            if (operators.isEmpty() || !operators.chars().allMatch(c -> OPERATORS.indexOf(c) >= 0)) {
+                throw new IllegalArgumentException("operators must be a non-empty string of " + OPERATORS);
+            }
+        }
+    }
+
+    /// {@return the source code of a program with the given shape}
+    public static String generate(Shape shape) {
+        return new ProgramGenerator(shape).program();
+    }
+
+    /// Usage: `ProgramGenerator [--statements n] [--variables n] [--depth n] [--operators mix] [--seed n] [output]`.
+    /// Parameters that are not given are taken from [Shape#DEFAULT], the program is written to stdout if no
+    /// output file is given.
+    public static void main(String[] args) throws IOException {
+        Shape shape = Shape.DEFAULT;
+        @Nullable Path output = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (!args[i].startsWith("--")) {
+                    if (output != null || i != args.length - 1) {
+                        throw new IllegalArgumentException("unexpected argument " + args[i]);
+                    }
+                    output = Path.of(args[i]);
+                    continue;
+                }
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("missing value for " + args[i]);
+                }
+                String value = args[++i];
+                shape = switch (args[i - 1]) {
+                    case "--statements" -> new Shape(Integer.parseInt(value), shape.variables(), shape.depth(), shape.operators(), shape.seed());
+                    case "--variables" -> new Shape(shape.statements(), Integer.parseInt(value), shape.depth(), shape.operators(), shape.seed());
+                    case "--depth" -> new Shape(shape.statements(), shape.variables(), Integer.parseInt(value), shape.operators(), shape.seed());
+                    case "--operators" -> new Shape(shape.statements(), shape.variables(), shape.depth(), value, shape.seed());
+                    case "--seed" -> new Shape(shape.statements(), shape.variables(), shape.depth(), shape.operators(), Long.parseLong(value));
+                    default -> throw new IllegalArgumentException("unknown option " + args[i - 1]);
+                };
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.exit(3);
+            return;
+        }
+        String program = generate(shape);
+        if (output == null) {
+            System.out.print(program);
+        } else {
+            Files.writeString(output, program);
+        }
+    }
+
+    private String program() {
+        this.builder.append("int main() {\n");
+        for (int i = 0; i < this.shape.variables(); i++) {
+            this.builder.append("    int ").append(variable(i)).append(" = ");
+            literal();
+            this.builder.append(";\n");
+        }
+        for (int i = 0; i < this.shape.statements(); i++) {
+            assignment();
+        }
+        this.builder.append("    return ").append(variable(0));
+        for (int i = 1; i < this.shape.variables(); i++) {
+            this.builder.append(" + ").append(variable(i));
+        }
+        return this.builder.append(";\n}\n").toString();
+    }
+
+    private void assignment() {
+        this.builder.append("    ").append(variable(this.random.nextInt(this.shape.variables())));
+        // every fourth assignment is a compound assignment
+        if (this.random.nextInt(4) == 0) {
+            char operator = operator();
+            this.builder.append(' ').append(operator).append("= ");
+            if (operator == '/' || operator == '%') {
+                divisor();
+            } else {
+                expression(this.shape.depth());
+            }
+        } else {
+            this.builder.append(" = ");
+            expression(this.shape.depth());
+        }
+        this.builder.append(";\n");
+    }
+
+    /// Appends an expression of at most the given depth.
+    /// Only one operand of each operator is nested further, so the size grows linearly with the depth.
+    private void expression(int depth) {
+        if (depth == 0) {
+            operand();
+            return;
+        }
+        char operator = operator();
+        if (operator == '/' || operator == '%') {
+            nested(depth - 1);
+            this.builder.append(' ').append(operator).append(' ');
+            divisor();
+        } else if (this.random.nextBoolean()) {
+            nested(depth - 1);
+            this.builder.append(' ').append(operator).append(' ');
+            operand();
+        } else {
+            operand();
+            this.builder.append(' ').append(operator).append(' ');
+            nested(depth - 1);
+        }
+    }
+
+    private void nested(int depth) {
+        if (depth == 0) {
+            operand();
+            return;
+        }
+        this.builder.append('(');
+        expression(depth);
+        this.builder.append(')');
+    }
+
+    private void operand() {
+        int choice = this.random.nextInt(8);
+        if (choice == 0) {
+            literal();
+        } else if (choice == 1) {
+            this.builder.append('-').append(variable(this.random.nextInt(this.shape.variables())));
+        } else {
+            this.builder.append(variable(this.random.nextInt(this.shape.variables())));
+        }
+    }
+
+    private void literal() {
+        int value = this.random.nextInt(1 << 16);
+        if (this.random.nextInt(4) == 0) {
+            this.builder.append("0x").append(Integer.toHexString(value));
+        } else {
+            this.builder.append(value);
+        }
+    }
+
+    /// Appends a literal that is safe to divide by.
+    private void divisor() {
+        this.builder.append(this.random.nextInt(2, 256));
+    }
+
+    private char operator() {
+        String operators = this.shape.operators();
+        return operators.charAt(this.random.nextInt(operators.length()));
+    }
+
+    private static String variable(int index) {
+        return "v" + index;
+    }
+}
@@ -13,6 +13,7 @@ import edu.kit.kastel.vads.compiler.ir.node.ReturnNode;
 import edu.kit.kastel.vads.compiler.ir.node.StartNode;
 import edu.kit.kastel.vads.compiler.ir.node.SubNode;
 import edu.kit.kastel.vads.compiler.ir.optimize.Optimizer;
+import edu.kit.kastel.vads.compiler.ir.util.DebugContext;
 import edu.kit.kastel.vads.compiler.parser.symbol.Name;
 
 import java.util.HashMap;
@@ -24,6 +25,7 @@ class GraphConstructor {
 
     private final Optimizer optimizer;
     private final IrGraph graph;
+    private final DebugContext debugContext = new DebugContext();
     private final Map<Name, Map<Block, Node>> currentDef = new HashMap<>();
     private final Map<Block, Map<Name, Phi>> incompletePhis = new HashMap<>();
     private final Map<Block, Node> currentSideEffect = new HashMap<>();
@@ -33,7 +35,7 @@ class GraphConstructor {
 
     public GraphConstructor(Optimizer optimizer, String name) {
         this.optimizer = optimizer;
-        this.graph = new IrGraph(name);
+        this.graph = new IrGraph(name, this.debugContext);
         this.currentBlock = this.graph.startBlock();
         // the start block never gets any more predecessors
         sealBlock(this.currentBlock);
@@ -94,6 +96,11 @@ class GraphConstructor {
         return this.graph;
     }
 
+    /// {@return the debug context of the graph under construction}
+    public DebugContext debugContext() {
+        return this.debugContext;
+    }
+
     void writeVariable(Name variable, Block block, Node value) {
         this.currentDef.computeIfAbsent(variable, _ -> new HashMap<>()).put(block, value);
     }
@@ -2,40 +2,47 @@ package edu.kit.kastel.vads.compiler.ir;
 
 import edu.kit.kastel.vads.compiler.ir.node.Block;
 import edu.kit.kastel.vads.compiler.ir.node.Node;
+import edu.kit.kastel.vads.compiler.ir.util.DebugContext;
 
-import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
-import java.util.Map;
-import java.util.SequencedSet;
 import java.util.Set;
 
 public class IrGraph {
-    private final Map<Node, SequencedSet<Node>> successors = new IdentityHashMap<>();
     private final Block startBlock;
     private final Block endBlock;
     private final String name;
+    private final DebugContext debugContext;
+    private int nodeCount;
 
-    public IrGraph(String name) {
+    /// @param debugContext provides the debug info for nodes created in this graph
+    public IrGraph(String name, DebugContext debugContext) {
         this.name = name;
+        this.debugContext = debugContext;
         this.startBlock = new Block(this);
         this.endBlock = new Block(this);
     }
 
-    public void registerSuccessor(Node node, Node successor) {
-        this.successors.computeIfAbsent(node, _ -> new LinkedHashSet<>()).add(successor);
+    /// Hands out the next node id, nodes call this once when they are constructed.
+    /// Ids are dense, so analyses can keep per-node data in arrays of size [#nodeCount()].
+    public int nextNodeId() {
+        return this.nodeCount++;
     }
 
-    public void removeSuccessor(Node node, Node oldSuccessor) {
-        this.successors.computeIfAbsent(node, _ -> new LinkedHashSet<>()).remove(oldSuccessor);
+    /// {@return the number of ids handed out so far, which is one more than the largest id}
+    /// Nodes that value numbering discarded keep their ids, so not every id below belongs to a node in the graph.
+    public int nodeCount() {
+        return this.nodeCount;
     }
 
     /// {@return the set of nodes that have the given node as one of their inputs}
+    /// This copies the uses into a new set, traversals should use [Node#successorCount()] and
+    /// [Node#successor(int)] instead.
     public Set<Node> successors(Node node) {
-        SequencedSet<Node> successors = this.successors.get(node);
-        if (successors == null) {
-            return Set.of();
+        Set<Node> successors = new LinkedHashSet<>();
+        for (int i = 0; i < node.successorCount(); i++) {
+            successors.add(node.successor(i));
         }
-        return Set.copyOf(successors);
+        return successors;
     }
 
     public Block startBlock() {
@@ -46,6 +53,10 @@ public class IrGraph {
         return this.endBlock;
     }
 
+    public DebugContext debugContext() {
+        return this.debugContext;
+    }
+
     /// {@return the name of this graph}
     public String name() {
         return name;
@@ -5,8 +5,8 @@ import edu.kit.kastel.vads.compiler.ir.node.DivNode;
 import edu.kit.kastel.vads.compiler.ir.node.ModNode;
 import edu.kit.kastel.vads.compiler.ir.node.Node;
 import edu.kit.kastel.vads.compiler.ir.optimize.Optimizer;
+import edu.kit.kastel.vads.compiler.ir.util.DebugContext;
 import edu.kit.kastel.vads.compiler.ir.util.DebugInfo;
-import edu.kit.kastel.vads.compiler.ir.util.DebugInfoHelper;
 import edu.kit.kastel.vads.compiler.parser.ast.AssignmentTree;
 import edu.kit.kastel.vads.compiler.parser.ast.BinaryOperationTree;
 import edu.kit.kastel.vads.compiler.parser.ast.BlockTree;
@@ -25,8 +25,6 @@ import edu.kit.kastel.vads.compiler.parser.ast.TypeTree;
 import edu.kit.kastel.vads.compiler.parser.symbol.Name;
 import edu.kit.kastel.vads.compiler.parser.visitor.Visitor;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.Optional;
 import java.util.function.BinaryOperator;
 
@@ -47,7 +45,7 @@ public class SsaTranslation {
     }
 
     public IrGraph translate() {
-        var visitor = new SsaTranslationVisitor();
+        var visitor = new SsaTranslationVisitor(this.constructor.debugContext());
         this.function.accept(visitor, this);
         return this.constructor.graph();
     }
@@ -69,15 +67,18 @@ public class SsaTranslation {
         @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
         private static final Optional<Node> NOT_AN_EXPRESSION = Optional.empty();
 
-        private final Deque<DebugInfo> debugStack = new ArrayDeque<>();
+        private final DebugContext debugContext;
+
+        SsaTranslationVisitor(DebugContext debugContext) {
+            this.debugContext = debugContext;
+        }
 
         private void pushSpan(Tree tree) {
-            this.debugStack.push(DebugInfoHelper.getDebugInfo());
-            DebugInfoHelper.setDebugInfo(new DebugInfo.SourceInfo(tree.span()));
+            this.debugContext.push(new DebugInfo.SourceInfo(tree.packedSpan()));
         }
 
         private void popSpan() {
-            DebugInfoHelper.setDebugInfo(this.debugStack.pop());
+            this.debugContext.pop();
         }
 
         @Override
@@ -2,32 +2,46 @@ package edu.kit.kastel.vads.compiler.ir.node;
 
 import edu.kit.kastel.vads.compiler.ir.util.DebugInfo;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
-import edu.kit.kastel.vads.compiler.ir.util.DebugInfoHelper;
+import org.jspecify.annotations.Nullable;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 /// The base class for all nodes.
 public sealed abstract class Node permits BinaryOperationNode, Block, ConstIntNode, Phi, ProjNode, ReturnNode, StartNode {
     private final IrGraph graph;
+    private final int id;
     private final Block block;
-    private final List<Node> predecessors = new ArrayList<>();
+    private static final Node[] NO_NODES = new Node[0];
+    // both arrays may be longer than their count, so appending does not copy each time
+    private Node[] predecessors;
+    private int predecessorCount;
+    // one entry per use, so a node using this one twice is in here twice
+    private Node[] successors = NO_NODES;
+    private int successorCount;
+    private @Nullable List<Node> predecessorView;
     private final DebugInfo debugInfo;
 
     protected Node(Block block, Node... predecessors) {
         this.graph = block.graph();
+        this.id = this.graph.nextNodeId();
         this.block = block;
-        this.predecessors.addAll(List.of(predecessors));
         for (Node predecessor : predecessors) {
-            graph.registerSuccessor(predecessor, this);
+            Objects.requireNonNull(predecessor).addSuccessor(this);
         }
-        this.debugInfo = DebugInfoHelper.getDebugInfo();
+        this.predecessors = predecessors.length == 0 ? NO_NODES : predecessors.clone();
+        this.predecessorCount = predecessors.length;
+        this.debugInfo = this.graph.debugContext().current();
     }
 
     protected Node(IrGraph graph) {
         assert this.getClass() == Block.class : "must be used by Block only";
         this.graph = graph;
+        this.id = graph.nextNodeId();
         this.block = (Block) this;
+        this.predecessors = NO_NODES;
         this.debugInfo = DebugInfo.NoInfo.INSTANCE;
     }
 
@@ -35,27 +49,86 @@ public sealed abstract class Node permits BinaryOperationNode, Block, ConstIntNo
         return this.graph;
     }
 
+    /// {@return the id of this node, unique within its graph and below [IrGraph#nodeCount()]}
+    public final int id() {
+        return this.id;
+    }
+
     public final Block block() {
         return this.block;
     }
 
+    /// {@return a read-only view of the inputs of this node}
+    /// The view does not copy and reflects later changes, prefer [#predecessorCount()] and
+    /// [#predecessor(int)] in loops to not even allocate the iterator.
     public final List<? extends Node> predecessors() {
-        return List.copyOf(this.predecessors);
+        if (this.predecessorView == null) {
+            this.predecessorView = new AbstractList<>() {
+                @Override
+                public Node get(int index) {
+                    return predecessor(index);
+                }
+
+                @Override
+                public int size() {
+                    return predecessorCount;
+                }
+            };
+        }
+        return this.predecessorView;
+    }
+
+    public final int predecessorCount() {
+        return this.predecessorCount;
     }
 
     public final void setPredecessor(int idx, Node node) {
-        this.graph.removeSuccessor(this.predecessors.get(idx), this);
-        this.predecessors.set(idx, node);
-        this.graph.registerSuccessor(node, this);
+        Node old = predecessor(idx);
+        old.removeSuccessor(this);
+        this.predecessors[idx] = node;
+        node.addSuccessor(this);
     }
 
     public final void addPredecessor(Node node) {
-        this.predecessors.add(node);
-        this.graph.registerSuccessor(node, this);
+        if (this.predecessorCount == this.predecessors.length) {
+            this.predecessors = Arrays.copyOf(this.predecessors, Math.max(2, this.predecessorCount * 2));
+        }
+        this.predecessors[this.predecessorCount++] = node;
+        node.addSuccessor(this);
     }
 
     public final Node predecessor(int idx) {
-        return this.predecessors.get(idx);
+        Objects.checkIndex(idx, this.predecessorCount);
+        return this.predecessors[idx];
+    }
+
+    /// {@return the number of uses of this node}
+    /// A node using this node as several of its inputs counts once per input.
+    public final int successorCount() {
+        return this.successorCount;
+    }
+
+    /// {@return the node of the `idx`-th use of this node}, in the order the uses were added
+    public final Node successor(int idx) {
+        Objects.checkIndex(idx, this.successorCount);
+        return this.successors[idx];
+    }
+
+    private void addSuccessor(Node successor) {
+        if (this.successorCount == this.successors.length) {
+            this.successors = Arrays.copyOf(this.successors, Math.max(2, this.successorCount * 2));
+        }
+        this.successors[this.successorCount++] = successor;
+    }
+
+    private void removeSuccessor(Node successor) {
+        for (int i = 0; i < this.successorCount; i++) {
+            if (this.successors[i] == successor) {
+                System.arraycopy(this.successors, i + 1, this.successors, i, this.successorCount - i - 1);
+                this.successors[--this.successorCount] = null;
+                return;
+            }
+        }
     }
 
     @Override
@@ -72,6 +145,12 @@ public sealed abstract class Node permits BinaryOperationNode, Block, ConstIntNo
     }
 
     protected static int predecessorHash(Node node, int predecessor) {
-        return System.identityHashCode(node.predecessor(predecessor));
+        return hashId(node.predecessor(predecessor).id());
+    }
+
+    /// {@return a hash of a node id for hash codes built from the identities of nodes}
+    public static int hashId(int id) {
+        // ids are small and consecutive, multiplying by the golden ratio spreads them over all bits
+        return id * 0x9E3779B9;
     }
 }
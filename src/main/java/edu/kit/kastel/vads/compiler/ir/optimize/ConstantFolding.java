@@ -0,0 +1,80 @@
+package edu.kit.kastel.vads.compiler.ir.optimize;
+
+import edu.kit.kastel.vads.compiler.ir.node.AddNode;
+import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
+import edu.kit.kastel.vads.compiler.ir.node.ConstIntNode;
+import edu.kit.kastel.vads.compiler.ir.node.DivNode;
+import edu.kit.kastel.vads.compiler.ir.node.ModNode;
+import edu.kit.kastel.vads.compiler.ir.node.MulNode;
+import edu.kit.kastel.vads.compiler.ir.node.Node;
+import edu.kit.kastel.vads.compiler.ir.node.SubNode;
+
+/// Evaluates arithmetic on constants and removes operations that do not change their operand.
+/// Arithmetic wraps around at 32 bits, like Java's `int`.
+///
+/// The identities applied are `x + 0`, `x - 0`, `x * 1` and `x / 1` to `x`, `x * 0`, `x - x` and `x % 1` to `0`,
+/// and `0 - (0 - x)` to `x`.
+/// Divisions that trap at runtime, by zero or of [Integer#MIN_VALUE] by `-1`, are kept as they are.
+///
+/// New constants are created in the start block like [edu.kit.kastel.vads.compiler.ir.GraphConstructor] does,
+/// so chain this in front of [LocalValueNumbering] with [Optimizer#andThen(Optimizer)] to deduplicate them.
+public class ConstantFolding implements Optimizer {
+
+    @Override
+    public Node transform(Node node) {
+        if (!(node instanceof BinaryOperationNode binary)) {
+            return node;
+        }
+        Node left = node.predecessor(BinaryOperationNode.LEFT);
+        Node right = node.predecessor(BinaryOperationNode.RIGHT);
+        if (left instanceof ConstIntNode l && right instanceof ConstIntNode r) {
+            return switch (binary) {
+                case AddNode _ -> constant(node, l.value() + r.value());
+                case SubNode _ -> constant(node, l.value() - r.value());
+                case MulNode _ -> constant(node, l.value() * r.value());
+                case DivNode _ -> traps(r.value(), l.value()) ? node : constant(node, l.value() / r.value());
+                case ModNode _ -> traps(r.value(), l.value()) ? node : constant(node, l.value() % r.value());
+            };
+        }
+        return switch (binary) {
+            case AddNode _ -> isConstant(right, 0) ? left : isConstant(left, 0) ? right : node;
+            case SubNode _ -> subtraction(node, left, right);
+            case MulNode _ -> {
+                if (isConstant(left, 0) || isConstant(right, 0)) {
+                    yield constant(node, 0);
+                }
+                yield isConstant(right, 1) ? left : isConstant(left, 1) ? right : node;
+            }
+            case DivNode _ -> isConstant(right, 1) ? left : node;
+            case ModNode _ -> isConstant(right, 1) ? constant(node, 0) : node;
+        };
+    }
+
+    private static Node subtraction(Node node, Node left, Node right) {
+        if (isConstant(right, 0)) {
+            return left;
+        }
+        if (left == right) {
+            return constant(node, 0);
+        }
+        // 0 - (0 - x), which is how nested negations are translated
+        if (isConstant(left, 0) && right instanceof SubNode inner
+            && isConstant(inner.predecessor(BinaryOperationNode.LEFT), 0)) {
+            return inner.predecessor(BinaryOperationNode.RIGHT);
+        }
+        return node;
+    }
+
+    /// {@return whether dividing `dividend` by `divisor` raises an arithmetic exception on x86}
+    private static boolean traps(int divisor, int dividend) {
+        return divisor == 0 || divisor == -1 && dividend == Integer.MIN_VALUE;
+    }
+
+    private static boolean isConstant(Node node, int value) {
+        return node instanceof ConstIntNode constant && constant.value() == value;
+    }
+
+    private static Node constant(Node replaced, int value) {
+        return new ConstIntNode(replaced.graph().startBlock(), value);
+    }
+}
@@ -0,0 +1,345 @@
+package edu.kit.kastel.vads.compiler.ir.optimize;
+
+import edu.kit.kastel.vads.compiler.ir.IrGraph;
+import edu.kit.kastel.vads.compiler.ir.node.AddNode;
+import edu.kit.kastel.vads.compiler.ir.node.BinaryOperationNode;
+import edu.kit.kastel.vads.compiler.ir.node.Block;
+import edu.kit.kastel.vads.compiler.ir.node.ConstIntNode;
+import edu.kit.kastel.vads.compiler.ir.node.MulNode;
+import edu.kit.kastel.vads.compiler.ir.node.Node;
+import edu.kit.kastel.vads.compiler.ir.node.Phi;
+import edu.kit.kastel.vads.compiler.ir.node.ProjNode;
+import edu.kit.kastel.vads.compiler.ir.node.SubNode;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/// Dominator-based global value numbering, which complements [LocalValueNumbering] after the graph is built.
+///
+/// The blocks are visited in a preorder walk of the dominator tree, and the nodes of each block in an order where
+/// inputs come before their uses. A node computing the same operation on the same inputs as a node visited before
+/// in the same or a dominating block is congruent to it, so all its uses are redirected to that node with
+/// [Node#setPredecessor(int, Node)]. As the uses are redirected right away, the inputs of later nodes are already
+/// the representatives of their classes, and comparing inputs by identity suffices.
+///
+/// Unlike the [Node#equals(Object)] used by [LocalValueNumbering], congruence ignores the block of a node, so
+/// constants and arithmetic are merged across blocks. Phis are congruent if they are in the same block and have the
+/// same operands, and a phi whose operands are all the same value, or the phi itself, is replaced by that value.
+/// Nodes with side effects, such as divisions, are never merged.
+public final class GlobalValueNumbering {
+    private static final int NO_BLOCK = -1;
+
+    private final IrGraph graph;
+    // the nodes visited so far, which are final representatives or already replaced, by node id
+    private final boolean[] numbered;
+    private final Map<Expression, Node> available = new HashMap<>();
+    private int replaced;
+
+    public GlobalValueNumbering(IrGraph graph) {
+        this.graph = graph;
+        this.numbered = new boolean[graph.nodeCount()];
+    }
+
+    /// Merges the congruent nodes of the graph.
+    /// {@return the number of nodes whose uses were redirected to a congruent node}
+    public int run() {
+        List<Node> order = postOrder();
+        int[] blockIndices = new int[this.graph.nodeCount()];
+        Arrays.fill(blockIndices, NO_BLOCK);
+        List<Block> blocks = new ArrayList<>();
+        for (Node node : order) {
+            if (node instanceof Block block) {
+                blockIndices[block.id()] = blocks.size();
+                blocks.add(block);
+            }
+        }
+        List<List<Node>> nodesByBlock = new ArrayList<>(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            nodesByBlock.add(new ArrayList<>());
+        }
+        for (Node node : order) {
+            nodesByBlock.get(blockIndices[node.block().id()]).add(node);
+        }
+
+        List<List<Integer>> children = dominatorTree(blocks, blockIndices);
+        // preorder walk of the dominator tree, a negative entry leaves the subtree of block -entry - 1
+        List<List<Expression>> added = new ArrayList<>(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            added.add(new ArrayList<>());
+        }
+        int[] stack = new int[2 * blocks.size()];
+        int size = 0;
+        stack[size++] = blockIndices[this.graph.startBlock().id()];
+        while (size > 0) {
+            int entry = stack[--size];
+            if (entry < 0) {
+                for (Expression expression : added.get(-entry - 1)) {
+                    this.available.remove(expression);
+                }
+                continue;
+            }
+            for (Node node : nodesByBlock.get(entry)) {
+                number(node, added.get(entry));
+            }
+            stack[size++] = -entry - 1;
+            // the children are in reverse post order, visiting them in it reaches the operands of phis first
+            List<Integer> dominated = children.get(entry);
+            for (int i = dominated.size() - 1; i >= 0; i--) {
+                stack[size++] = dominated.get(i);
+            }
+        }
+        return this.replaced;
+    }
+
+    private void number(Node node, List<Expression> added) {
+        this.numbered[node.id()] = true;
+        if (!isPure(node)) {
+            return;
+        }
+        if (node instanceof Phi phi) {
+            for (int i = 0; i < phi.predecessorCount(); i++) {
+                // operands over back edges may still be replaced, which would change the phi's hash
+                if (!this.numbered[phi.predecessor(i).id()]) {
+                    return;
+                }
+            }
+            Node same = trivialValue(phi);
+            if (same != null) {
+                replace(phi, same);
+                return;
+            }
+        }
+        Expression expression = new Expression(node);
+        Node existing = this.available.get(expression);
+        if (existing != null) {
+            replace(node, existing);
+        } else {
+            this.available.put(expression, node);
+            added.add(expression);
+        }
+    }
+
+    /// {@return the only value the phi merges besides itself, or `null` if there are several}
+    private static @Nullable Node trivialValue(Phi phi) {
+        @Nullable Node same = null;
+        for (int i = 0; i < phi.predecessorCount(); i++) {
+            Node operand = phi.predecessor(i);
+            if (operand == phi || operand == same) {
+                continue;
+            }
+            if (same != null) {
+                return null;
+            }
+            same = operand;
+        }
+        return same;
+    }
+
+    private void replace(Node node, Node replacement) {
+        while (node.successorCount() > 0) {
+            Node user = node.successor(node.successorCount() - 1);
+            for (int i = 0; i < user.predecessorCount(); i++) {
+                if (user.predecessor(i) == node) {
+                    user.setPredecessor(i, replacement);
+                }
+            }
+        }
+        this.replaced++;
+    }
+
+    /// {@return all nodes reachable from the end block through inputs and blocks, inputs before their uses}
+    /// Only phis can close a cycle, their operands over back edges come after them.
+    private List<Node> postOrder() {
+        List<Node> order = new ArrayList<>();
+        boolean[] visited = new boolean[this.graph.nodeCount()];
+        List<Node> nodes = new ArrayList<>();
+        // the index of the next input to visit for each node on the stack, the block comes last
+        int[] next = new int[this.graph.nodeCount()];
+        visited[this.graph.endBlock().id()] = true;
+        nodes.add(this.graph.endBlock());
+        while (!nodes.isEmpty()) {
+            Node node = nodes.getLast();
+            int index = next[node.id()]++;
+            Node input;
+            if (index < node.predecessorCount()) {
+                input = node.predecessor(index);
+            } else if (index == node.predecessorCount()) {
+                input = node.block();
+            } else {
+                order.add(nodes.removeLast());
+                continue;
+            }
+            if (!visited[input.id()]) {
+                visited[input.id()] = true;
+                nodes.add(input);
+            }
+        }
+        return order;
+    }
+
+    /// Computes the immediate dominators of the blocks reachable from the start block with the algorithm of
+    /// Cooper, Harvey and Kennedy, "A Simple, Fast Dominance Algorithm".
+    /// {@return the children of each block in the dominator tree, by block index}
+    private List<List<Integer>> dominatorTree(List<Block> blocks, int[] blockIndices) {
+        // the control flow predecessors of a block are the blocks of its inputs
+        List<List<Integer>> successors = new ArrayList<>(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            successors.add(new ArrayList<>());
+        }
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            for (int j = 0; j < block.predecessorCount(); j++) {
+                successors.get(blockIndices[block.predecessor(j).block().id()]).add(i);
+            }
+        }
+
+        int start = blockIndices[this.graph.startBlock().id()];
+        int[] reversePostOrder = new int[blocks.size()];
+        int[] rank = new int[blocks.size()];
+        Arrays.fill(rank, NO_BLOCK);
+        int count = reversePostOrder(successors, start, reversePostOrder, rank);
+
+        int[] dominators = new int[blocks.size()];
+        Arrays.fill(dominators, NO_BLOCK);
+        dominators[start] = start;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 1; r < count; r++) {
+                int b = reversePostOrder[r];
+                Block block = blocks.get(b);
+                int dominator = NO_BLOCK;
+                for (int j = 0; j < block.predecessorCount(); j++) {
+                    int p = blockIndices[block.predecessor(j).block().id()];
+                    if (dominators[p] == NO_BLOCK) {
+                        continue;
+                    }
+                    dominator = dominator == NO_BLOCK ? p : intersect(dominators, rank, p, dominator);
+                }
+                if (dominators[b] != dominator) {
+                    dominators[b] = dominator;
+                    changed = true;
+                }
+            }
+        }
+
+        List<List<Integer>> children = new ArrayList<>(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            children.add(new ArrayList<>());
+        }
+        for (int r = 1; r < count; r++) {
+            int b = reversePostOrder[r];
+            children.get(dominators[b]).add(b);
+        }
+        return children;
+    }
+
+    /// Fills the blocks reachable from `start` into `order` in reverse post order, and the position of each block
+    /// in it into `rank`.
+    /// {@return the number of reachable blocks}
+    private static int reversePostOrder(List<List<Integer>> successors, int start, int[] order, int[] rank) {
+        int[] postOrder = new int[order.length];
+        int count = 0;
+        boolean[] visited = new boolean[order.length];
+        int[] blocks = new int[order.length];
+        int[] next = new int[order.length];
+        int size = 0;
+        visited[start] = true;
+        blocks[size++] = start;
+        while (size > 0) {
+            int block = blocks[size - 1];
+            List<Integer> targets = successors.get(block);
+            if (next[block] < targets.size()) {
+                int target = targets.get(next[block]++);
+                if (!visited[target]) {
+                    visited[target] = true;
+                    blocks[size++] = target;
+                }
+            } else {
+                postOrder[count++] = block;
+                size--;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = postOrder[count - 1 - i];
+            rank[order[i]] = i;
+        }
+        return count;
+    }
+
+    private static int intersect(int[] dominators, int[] rank, int a, int b) {
+        while (a != b) {
+            while (rank[a] > rank[b]) {
+                a = dominators[a];
+            }
+            while (rank[b] > rank[a]) {
+                b = dominators[b];
+            }
+        }
+        return a;
+    }
+
+    /// {@return whether the node only depends on its inputs, so congruent nodes may be merged}
+    private static boolean isPure(Node node) {
+        return node instanceof ConstIntNode || node instanceof AddNode || node instanceof SubNode
+            || node instanceof MulNode || node instanceof Phi || node instanceof ProjNode;
+    }
+
+    /// Compares nodes by congruence rather than by [Node#equals(Object)].
+    /// The inputs of a node must not change while it is in a hash map.
+    private record Expression(Node node) {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Expression(Node other) && congruent(this.node, other);
+        }
+
+        @Override
+        public int hashCode() {
+            return switch (this.node) {
+                case ConstIntNode constant -> constant.value();
+                case AddNode _, MulNode _ -> this.node.getClass().hashCode() ^ 31
+                    * (Node.hashId(this.node.predecessor(BinaryOperationNode.LEFT).id())
+                    + Node.hashId(this.node.predecessor(BinaryOperationNode.RIGHT).id()));
+                default -> {
+                    int h = this.node instanceof Phi ? this.node.block().id() : this.node.getClass().hashCode();
+                    for (int i = 0; i < this.node.predecessorCount(); i++) {
+                        h = h * 31 + Node.hashId(this.node.predecessor(i).id());
+                    }
+                    yield h;
+                }
+            };
+        }
+
+        private static boolean congruent(Node a, Node b) {
+            if (a.getClass() != b.getClass()) {
+                return false;
+            }
+            return switch (a) {
+                case ConstIntNode constant -> constant.value() == ((ConstIntNode) b).value();
+                case ProjNode projection -> projection.projectionInfo() == ((ProjNode) b).projectionInfo()
+                    && sameInputs(a, b);
+                case Phi _ -> a.block() == b.block() && sameInputs(a, b);
+                case AddNode _, MulNode _ -> sameInputs(a, b)
+                    || a.predecessor(BinaryOperationNode.LEFT) == b.predecessor(BinaryOperationNode.RIGHT)
+                    && a.predecessor(BinaryOperationNode.RIGHT) == b.predecessor(BinaryOperationNode.LEFT);
+                default -> sameInputs(a, b);
+            };
+        }
+
+        private static boolean sameInputs(Node a, Node b) {
+            if (a.predecessorCount() != b.predecessorCount()) {
+                return false;
+            }
+            for (int i = 0; i < a.predecessorCount(); i++) {
+                if (a.predecessor(i) != b.predecessor(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
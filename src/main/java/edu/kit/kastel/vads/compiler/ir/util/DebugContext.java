@@ -0,0 +1,27 @@
+package edu.kit.kastel.vads.compiler.ir.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/// Tracks the debug info that is attached to nodes when they are created.
+/// Every graph under construction has its own context, so several graphs
+/// can be constructed on different threads at the same time.
+public final class DebugContext {
+    private final Deque<DebugInfo> stack = new ArrayDeque<>();
+    private DebugInfo current = DebugInfo.NoInfo.INSTANCE;
+
+    /// Makes `debugInfo` the current debug info until the matching [#pop()].
+    public void push(DebugInfo debugInfo) {
+        this.stack.push(this.current);
+        this.current = debugInfo;
+    }
+
+    /// Restores the debug info that was current before the last [#push(DebugInfo)].
+    public void pop() {
+        this.current = this.stack.pop();
+    }
+
+    public DebugInfo current() {
+        return this.current;
+    }
+}
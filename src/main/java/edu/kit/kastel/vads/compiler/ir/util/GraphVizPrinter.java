@@ -1,47 +1,44 @@
 package edu.kit.kastel.vads.compiler.ir.util;
 
-import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.LineMap;
 import edu.kit.kastel.vads.compiler.ir.IrGraph;
 import edu.kit.kastel.vads.compiler.ir.node.Block;
 import edu.kit.kastel.vads.compiler.ir.node.Node;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /// Outputs a DOT format string to visualize an [IrGraph].
 public class GraphVizPrinter {
-    private final Map<Block, Set<Node>> clusters = new HashMap<>();
+    private final Map<Block, List<Node>> clusters = new LinkedHashMap<>();
     private final List<Edge> edges = new ArrayList<>();
-    private final Map<Node, Integer> ids = new HashMap<>();
     private final StringBuilder builder = new StringBuilder();
     private final IrGraph graph;
-    private int counter = 0;
+    private final LineMap lineMap;
 
-    public GraphVizPrinter(IrGraph graph) {
+    public GraphVizPrinter(IrGraph graph, LineMap lineMap) {
         this.graph = graph;
+        this.lineMap = lineMap;
     }
 
-    public static String print(IrGraph graph) {
-        GraphVizPrinter printer = new GraphVizPrinter(graph);
-        printer.prepare(graph.endBlock(), new HashSet<>());
+    /// @param lineMap the line map of the input the graph was created from, used to print source spans
+    public static String print(IrGraph graph, LineMap lineMap) {
+        GraphVizPrinter printer = new GraphVizPrinter(graph, lineMap);
+        printer.prepare(graph.endBlock(), new boolean[graph.nodeCount()]);
         printer.print();
         return printer.builder.toString();
     }
 
-    private void prepare(Node node, Set<Node> seen) {
-        if (!seen.add(node)) {
+    private void prepare(Node node, boolean[] seen) {
+        if (seen[node.id()]) {
             return;
         }
+        seen[node.id()] = true;
 
         if (!(node instanceof Block)) {
-            this.clusters.computeIfAbsent(node.block(), _ -> Collections.newSetFromMap(new IdentityHashMap<>()))
-                .add(node);
+            this.clusters.computeIfAbsent(node.block(), _ -> new ArrayList<>()).add(node);
         }
         int idx = 0;
         for (Node predecessor : node.predecessors()) {
@@ -49,7 +46,7 @@ public class GraphVizPrinter {
             prepare(predecessor, seen);
         }
         if (node == this.graph.endBlock()) {
-            this.clusters.put(this.graph.endBlock(), Set.of());
+            this.clusters.put(this.graph.endBlock(), List.of());
         }
     }
 
@@ -84,10 +81,10 @@ public class GraphVizPrinter {
                     .append(" [label=\"")
                     .append(labelFor(node))
                     .append("\"");
-                if (node.debugInfo() instanceof DebugInfo.SourceInfo(Span span)) {
+                if (node.debugInfo() instanceof DebugInfo.SourceInfo(long packedSpan)) {
                     this.builder.append(", tooltip=\"")
                         .append("source span: ")
-                        .append(span)
+                        .append(this.lineMap.span(packedSpan))
                         .append("\"");
                 }
                 this.builder.append("];\n");
@@ -125,7 +122,7 @@ public class GraphVizPrinter {
     }
 
     private int idFor(Node node) {
-        return this.ids.computeIfAbsent(node, _ -> this.counter++);
+        return node.id();
     }
 
     private String nameFor(Node node) {
@@ -0,0 +1,60 @@
+package edu.kit.kastel.vads.compiler.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/// A [CharSequence] view of a buffer of ASCII characters, see [#isAscii(ByteBuffer)].
+/// Each byte is mapped to the char with the same value, no decoding or copying happens.
+/// Only [#subSequence(int, int)] and [#toString()] copy the requested range.
+final class AsciiCharSequence implements CharSequence {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    /// {@return whether all remaining bytes of the buffer are ASCII}
+    /// Only then do the bytes equal the characters they encode in UTF-8.
+    static boolean isAscii(ByteBuffer buffer) {
+        int i = buffer.position();
+        int end = buffer.limit();
+        // the sign bits of eight bytes at once, the byte order does not matter for that
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            if ((buffer.getLong(i) & 0x8080808080808080L) != 0) {
+                return false;
+            }
+        }
+        for (; i < end; i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    AsciiCharSequence(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.offset = buffer.position();
+        this.length = buffer.remaining();
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (this.buffer.get(this.offset + index) & 0xFF);
+    }
+
+    @Override
+    public String subSequence(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        this.buffer.get(this.offset + start, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, this.length);
+    }
+}
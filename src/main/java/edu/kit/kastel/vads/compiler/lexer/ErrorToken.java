@@ -1,8 +1,6 @@
 package edu.kit.kastel.vads.compiler.lexer;
 
-import edu.kit.kastel.vads.compiler.Span;
-
-public record ErrorToken(String value, Span span) implements Token {
+public record ErrorToken(String value, long packedSpan) implements Token {
     @Override
     public String asString() {
         return value();
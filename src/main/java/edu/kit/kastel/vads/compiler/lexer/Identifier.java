@@ -1,8 +1,9 @@
 package edu.kit.kastel.vads.compiler.lexer;
 
-import edu.kit.kastel.vads.compiler.Span;
-
-public record Identifier(String value, Span span) implements Token {
+/// An identifier token.
+/// @param symbol the id assigned to `value` by `symbols`
+/// @param symbols the table of the lexer that produced this token
+public record Identifier(String value, int symbol, SymbolTable symbols, long packedSpan) implements Token {
     @Override
     public String asString() {
         return value();
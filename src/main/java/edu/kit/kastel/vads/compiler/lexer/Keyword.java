@@ -1,8 +1,6 @@
 package edu.kit.kastel.vads.compiler.lexer;
 
-import edu.kit.kastel.vads.compiler.Span;
-
-public record Keyword(KeywordType type, Span span) implements Token {
+public record Keyword(KeywordType type, long packedSpan) implements Token {
     @Override
     public boolean isKeyword(KeywordType keywordType) {
         return type() == keywordType;
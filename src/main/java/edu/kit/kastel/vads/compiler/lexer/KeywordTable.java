@@ -0,0 +1,46 @@
+package edu.kit.kastel.vads.compiler.lexer;
+
+import org.jspecify.annotations.Nullable;
+
+/// A perfect hash table over all [KeywordType]s.
+/// Keywords are told apart by their first character, last character and length,
+/// which allows classifying a slice of the input without creating a [String] for it.
+final class KeywordTable {
+    private static final int SIZE = 64;
+    private static final @Nullable KeywordType[] TABLE = new KeywordType[SIZE];
+
+    static {
+        for (KeywordType type : KeywordType.values()) {
+            String keyword = type.keyword();
+            int slot = hash(keyword.charAt(0), keyword.charAt(keyword.length() - 1), keyword.length());
+            if (TABLE[slot] != null) {
+                // adjust the hash function when adding keywords
+                throw new AssertionError("keywords " + TABLE[slot] + " and " + type + " collide");
+            }
+            TABLE[slot] = type;
+        }
+    }
+
+    private KeywordTable() {
+
+    }
+
+    /// {@return the keyword spelled by `source[start, start + length)`, or `null` if it is not a keyword}
+    static @Nullable KeywordType lookup(CharSequence source, int start, int length) {
+        KeywordType candidate = TABLE[hash(source.charAt(start), source.charAt(start + length - 1), length)];
+        if (candidate == null || candidate.keyword().length() != length) {
+            return null;
+        }
+        String keyword = candidate.keyword();
+        for (int i = 0; i < length; i++) {
+            if (keyword.charAt(i) != source.charAt(start + i)) {
+                return null;
+            }
+        }
+        return candidate;
+    }
+
+    private static int hash(char first, char last, int length) {
+        return (first * 3 + last * 8 + length) & (SIZE - 1);
+    }
+}
@@ -1,20 +1,27 @@
 package edu.kit.kastel.vads.compiler.lexer;
 
-import edu.kit.kastel.vads.compiler.Position;
-import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.LineMap;
+import edu.kit.kastel.vads.compiler.PackedSpan;
 import edu.kit.kastel.vads.compiler.lexer.Operator.OperatorType;
 import edu.kit.kastel.vads.compiler.lexer.Separator.SeparatorType;
 import org.jspecify.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 
 public class Lexer {
-    private final String source;
+    private final CharSequence source;
+    private final SymbolTable symbols = new SymbolTable();
+    private final LineMap lineMap = new LineMap();
     private int pos;
-    private int lineStart;
-    private int line;
 
-    private Lexer(String source) {
+    private Lexer(CharSequence source) {
         this.source = source;
     }
 
@@ -22,6 +29,37 @@ public class Lexer {
         return new Lexer(source);
     }
 
+    /// Creates a lexer over the remaining bytes of the given buffer, which are UTF-8 encoded.
+    /// If they are pure ASCII, as L1 sources are, the characters are read directly from the buffer, which must
+    /// not be modified while lexing then. Other input is decoded into a [String] first, so non-ASCII characters
+    /// reach the lexer as themselves rather than as one character per byte.
+    /// @throws CharacterCodingException if the input is not valid UTF-8
+    public static Lexer forBuffer(ByteBuffer source) throws CharacterCodingException {
+        if (AsciiCharSequence.isAscii(source)) {
+            return new Lexer(new AsciiCharSequence(source));
+        }
+        return forString(StandardCharsets.UTF_8.newDecoder().decode(source.duplicate()).toString());
+    }
+
+    /// Creates a lexer over a read-only memory mapping of the given file.
+    /// ASCII input is never decoded into a [String], so heap usage does not depend on the file size.
+    public static Lexer forFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return forBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /// {@return the table interning all identifiers produced by this lexer}
+    public SymbolTable symbols() {
+        return this.symbols;
+    }
+
+    /// {@return the line starts seen so far, used to materialize the packed spans of tokens}
+    public LineMap lineMap() {
+        return this.lineMap;
+    }
+
     public Optional<Token> nextToken() {
         ErrorToken error = skipWhitespace();
         if (error != null) {
@@ -69,8 +107,7 @@ public class Lexer {
                 case ' ', '\t' -> this.pos++;
                 case '\n', '\r' -> {
                     this.pos++;
-                    this.lineStart = this.pos;
-                    this.line++;
+                    this.lineMap.addLineStart(this.pos);
                     if (currentCommentType == CommentType.SINGLE_LINE) {
                         currentCommentType = null;
                     }
@@ -119,7 +156,7 @@ public class Lexer {
             }
         }
         if (!hasMore(0) && currentCommentType == CommentType.MULTI_LINE) {
-            return new ErrorToken(this.source.substring(commentStart), buildSpan(0));
+            return new ErrorToken(text(commentStart, this.source.length()), buildSpan(0));
         }
         return null;
     }
@@ -133,14 +170,12 @@ public class Lexer {
         while (hasMore(off) && isIdentifierChar(peek(off))) {
             off++;
         }
-        String id = this.source.substring(this.pos, this.pos + off);
-        // This is a naive solution. Using a better data structure (hashmap, trie) likely performs better.
-        for (KeywordType value : KeywordType.values()) {
-            if (value.keyword().equals(id)) {
-                return new Keyword(value, buildSpan(off));
-            }
+        KeywordType keyword = KeywordTable.lookup(this.source, this.pos, off);
+        if (keyword != null) {
+            return new Keyword(keyword, buildSpan(off));
         }
-        return new Identifier(id, buildSpan(off));
+        int symbol = this.symbols.intern(this.source, this.pos, off);
+        return new Identifier(this.symbols.name(symbol), symbol, this.symbols, buildSpan(off));
     }
 
     private Token lexNumber() {
@@ -151,9 +186,9 @@ public class Lexer {
             }
             if (off == 2) {
                 // 0x without any further hex digits
-                return new ErrorToken(this.source.substring(this.pos, this.pos + off), buildSpan(2));
+                return new ErrorToken(text(this.pos, this.pos + off), buildSpan(2));
             }
-            return new NumberLiteral(this.source.substring(this.pos, this.pos + off), 16, buildSpan(off));
+            return new NumberLiteral(text(this.pos, this.pos + off), 16, buildSpan(off));
         }
         int off = 1;
         while (hasMore(off) && isNumeric(peek(off))) {
@@ -161,9 +196,9 @@ public class Lexer {
         }
         if (peek() == '0' && off > 1) {
             // leading zero is not allowed
-            return new ErrorToken(this.source.substring(this.pos, this.pos + off), buildSpan(off));
+            return new ErrorToken(text(this.pos, this.pos + off), buildSpan(off));
         }
-        return new NumberLiteral(this.source.substring(this.pos, this.pos + off), 10, buildSpan(off));
+        return new NumberLiteral(text(this.pos, this.pos + off), 10, buildSpan(off));
     }
 
     private boolean isHexPrefix() {
@@ -192,12 +227,14 @@ public class Lexer {
         return new Operator(single, buildSpan(1));
     }
 
-    private Span buildSpan(int proceed) {
+    private long buildSpan(int proceed) {
         int start = this.pos;
         this.pos += proceed;
-        Position.SimplePosition s = new Position.SimplePosition(this.line, start - this.lineStart);
-        Position.SimplePosition e = new Position.SimplePosition(this.line, start - this.lineStart + proceed);
-        return new Span.SimpleSpan(s, e);
+        return PackedSpan.of(start, this.pos);
+    }
+
+    private String text(int start, int end) {
+        return this.source.subSequence(start, end).toString();
     }
 
     private char peek() {
@@ -1,8 +1,6 @@
 package edu.kit.kastel.vads.compiler.lexer;
 
-import edu.kit.kastel.vads.compiler.Span;
-
-public record Separator(SeparatorType type, Span span) implements Token {
+public record Separator(SeparatorType type, long packedSpan) implements Token {
 
     @Override
     public boolean isSeparator(SeparatorType separatorType) {
@@ -0,0 +1,90 @@
+package edu.kit.kastel.vads.compiler.lexer;
+
+import java.util.Arrays;
+
+/// Interns the identifiers of one compilation.
+/// Every distinct identifier is assigned a dense id, counting up from 0, and a single canonical [String].
+/// Ids are only meaningful together with the table that assigned them.
+public final class SymbolTable {
+    private static final int INITIAL_CAPACITY = 64;
+    // open addressing, each slot holds id + 1, 0 marks an empty slot
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY / 2];
+    private String[] names = new String[INITIAL_CAPACITY / 2];
+    private int size;
+
+    /// {@return the id of the identifier spelled by `source[start, start + length)`}
+    /// A [String] is only created the first time an identifier is seen.
+    int intern(CharSequence source, int start, int length) {
+        int hash = hash(source, start, length);
+        int mask = this.slots.length - 1;
+        int slot = hash & mask;
+        while (this.slots[slot] != 0) {
+            int id = this.slots[slot] - 1;
+            if (this.hashes[id] == hash && matches(this.names[id], source, start, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(slot, hash, source.subSequence(start, start + length).toString());
+    }
+
+    /// {@return the canonical name of the identifier with the given id}
+    public String name(int id) {
+        return this.names[id];
+    }
+
+    /// {@return the number of distinct identifiers seen so far}
+    public int size() {
+        return this.size;
+    }
+
+    private int insert(int slot, int hash, String name) {
+        int id = this.size++;
+        if (id == this.names.length) {
+            this.names = Arrays.copyOf(this.names, id * 2);
+            this.hashes = Arrays.copyOf(this.hashes, id * 2);
+        }
+        this.names[id] = name;
+        this.hashes[id] = hash;
+        this.slots[slot] = id + 1;
+        if (this.size * 2 > this.slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        int[] slots = new int[this.slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < this.size; id++) {
+            int slot = this.hashes[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+        this.slots = slots;
+    }
+
+    private static int hash(CharSequence source, int start, int length) {
+        int h = 0;
+        for (int i = start; i < start + length; i++) {
+            h = 31 * h + source.charAt(i);
+        }
+        // spread the bits, the table only looks at the lower ones
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String name, CharSequence source, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
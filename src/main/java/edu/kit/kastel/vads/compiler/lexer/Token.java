@@ -1,10 +1,9 @@
 package edu.kit.kastel.vads.compiler.lexer;
 
-import edu.kit.kastel.vads.compiler.Span;
-
 public sealed interface Token permits ErrorToken, Identifier, Keyword, NumberLiteral, Operator, Separator {
 
-    Span span();
+    /// {@return the location of this token as a [edu.kit.kastel.vads.compiler.PackedSpan]}
+    long packedSpan();
 
     default boolean isKeyword(KeywordType keywordType) {
         return false;
@@ -8,7 +8,7 @@ import edu.kit.kastel.vads.compiler.lexer.Operator;
 import edu.kit.kastel.vads.compiler.lexer.Operator.OperatorType;
 import edu.kit.kastel.vads.compiler.lexer.Separator;
 import edu.kit.kastel.vads.compiler.lexer.Separator.SeparatorType;
-import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.PackedSpan;
 import edu.kit.kastel.vads.compiler.lexer.Token;
 import edu.kit.kastel.vads.compiler.parser.ast.AssignmentTree;
 import edu.kit.kastel.vads.compiler.parser.ast.BinaryOperationTree;
@@ -29,11 +29,16 @@ import edu.kit.kastel.vads.compiler.parser.ast.TypeTree;
 import edu.kit.kastel.vads.compiler.parser.symbol.Name;
 import edu.kit.kastel.vads.compiler.parser.type.BasicType;
 
+import org.jspecify.annotations.Nullable;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Parser {
     private final TokenSource tokenSource;
+    // canonical names, indexed by symbol id
+    private @Nullable Name[] names = new Name[16];
 
     public Parser(TokenSource tokenSource) {
         this.tokenSource = tokenSource;
@@ -42,7 +47,7 @@ public class Parser {
     public ProgramTree parseProgram() {
         ProgramTree programTree = new ProgramTree(List.of(parseFunction()));
         if (this.tokenSource.hasMore()) {
-            throw new ParseException("expected end of input but got " + this.tokenSource.peek());
+            throw new ParseException("expected end of input but got " + this.tokenSource.describe(this.tokenSource.peek()));
         }
         return programTree;
     }
@@ -54,7 +59,7 @@ public class Parser {
         this.tokenSource.expectSeparator(SeparatorType.PAREN_CLOSE);
         BlockTree body = parseBlock();
         return new FunctionTree(
-            new TypeTree(BasicType.INT, returnType.span()),
+            new TypeTree(BasicType.INT, returnType.packedSpan()),
             name(identifier),
             body
         );
@@ -67,7 +72,7 @@ public class Parser {
             statements.add(parseStatement());
         }
         Separator bodyClose = this.tokenSource.expectSeparator(SeparatorType.BRACE_CLOSE);
-        return new BlockTree(statements, bodyOpen.span().merge(bodyClose.span()));
+        return new BlockTree(statements, PackedSpan.merge(bodyOpen.packedSpan(), bodyClose.packedSpan()));
     }
 
     private StatementTree parseStatement() {
@@ -91,7 +96,7 @@ public class Parser {
             this.tokenSource.expectOperator(OperatorType.ASSIGN);
             expr = parseExpression();
         }
-        return new DeclarationTree(new TypeTree(BasicType.INT, type.span()), name(ident), expr);
+        return new DeclarationTree(new TypeTree(BasicType.INT, type.packedSpan()), name(ident), expr);
     }
 
     private StatementTree parseSimple() {
@@ -111,7 +116,7 @@ public class Parser {
                 default -> throw new ParseException("expected assignment but got " + op.type());
             };
         }
-        throw new ParseException("expected assignment but got " + this.tokenSource.peek());
+        throw new ParseException("expected assignment but got " + this.tokenSource.describe(this.tokenSource.peek()));
     }
 
     private LValueTree parseLValue() {
@@ -128,7 +133,7 @@ public class Parser {
     private StatementTree parseReturn() {
         Keyword ret = this.tokenSource.expectKeyword(KeywordType.RETURN);
         ExpressionTree expression = parseExpression();
-        return new ReturnTree(expression, ret.span().start());
+        return new ReturnTree(expression, ret.packedSpan());
     }
 
     private ExpressionTree parseExpression() {
@@ -166,22 +171,31 @@ public class Parser {
                 yield expression;
             }
             case Operator(var type, _) when type == OperatorType.MINUS -> {
-                Span span = this.tokenSource.consume().span();
-                yield new NegateTree(parseFactor(), span);
+                long minus = this.tokenSource.consume().packedSpan();
+                yield new NegateTree(parseFactor(), minus);
             }
             case Identifier ident -> {
                 this.tokenSource.consume();
                 yield new IdentExpressionTree(name(ident));
             }
-            case NumberLiteral(String value, int base, Span span) -> {
+            case NumberLiteral(String value, int base, long packedSpan) -> {
                 this.tokenSource.consume();
-                yield new LiteralTree(value, base, span);
+                yield new LiteralTree(value, base, packedSpan);
             }
-            case Token t -> throw new ParseException("invalid factor " + t);
+            case Token t -> throw new ParseException("invalid factor " + this.tokenSource.describe(t));
         };
     }
 
-    private static NameTree name(Identifier ident) {
-        return new NameTree(Name.forIdentifier(ident), ident.span());
+    private NameTree name(Identifier ident) {
+        int symbol = ident.symbol();
+        if (symbol >= this.names.length) {
+            this.names = Arrays.copyOf(this.names, Math.max(symbol + 1, this.names.length * 2));
+        }
+        Name name = this.names[symbol];
+        if (name == null) {
+            name = Name.forIdentifier(ident);
+            this.names[symbol] = name;
+        }
+        return new NameTree(name, ident.packedSpan());
     }
 }
@@ -1,5 +1,6 @@
 package edu.kit.kastel.vads.compiler.parser;
 
+import edu.kit.kastel.vads.compiler.LineMap;
 import edu.kit.kastel.vads.compiler.lexer.Identifier;
 import edu.kit.kastel.vads.compiler.lexer.Keyword;
 import edu.kit.kastel.vads.compiler.lexer.KeywordType;
@@ -10,78 +11,118 @@ import edu.kit.kastel.vads.compiler.lexer.Separator;
 import edu.kit.kastel.vads.compiler.lexer.Separator.SeparatorType;
 import edu.kit.kastel.vads.compiler.lexer.Token;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.function.Supplier;
 
+/// Pulls tokens from a lexer on demand.
+/// Only the tokens of the current lookahead window are kept in a small ring buffer,
+/// so lexing happens interleaved with parsing and consumed tokens can be collected early.
 public class TokenSource {
-    private final List<Token> tokens;
-    private int idx;
+    /// The maximum lookahead supported by [#peek(int)]. Must be a power of two.
+    private static final int BUFFER_SIZE = 4;
+    private final Supplier<Optional<Token>> tokens;
+    private final LineMap lineMap;
+    private final Token[] buffer = new Token[BUFFER_SIZE];
+    private int head;
+    private int size;
+    private boolean exhausted;
 
     public TokenSource(Lexer lexer) {
-        this.tokens = Stream.generate(lexer::nextToken)
-            .takeWhile(Optional::isPresent)
-            .map(Optional::orElseThrow)
-            .toList();
+        this.tokens = lexer::nextToken;
+        this.lineMap = lexer.lineMap();
     }
 
-    TokenSource(List<Token> tokens) {
-        this.tokens = List.copyOf(tokens);
+    /// Creates a token source for tokens that were lexed up front.
+    /// @param lineMap the line map the tokens' spans refer to
+    public TokenSource(List<Token> tokens, LineMap lineMap) {
+        Iterator<Token> iterator = List.copyOf(tokens).iterator();
+        this.tokens = () -> iterator.hasNext() ? Optional.of(iterator.next()) : Optional.empty();
+        this.lineMap = lineMap;
     }
 
     public Token peek() {
-        expectHasMore();
-        return this.tokens.get(this.idx);
+        return peek(0);
+    }
+
+    /// {@return the token `offset` tokens after the current one}
+    public Token peek(int offset) {
+        assert offset < BUFFER_SIZE : "lookahead " + offset + " exceeds buffer size";
+        if (!fill(offset + 1)) {
+            throw new ParseException("reached end of file");
+        }
+        return this.buffer[(this.head + offset) & (BUFFER_SIZE - 1)];
     }
 
     public Keyword expectKeyword(KeywordType type) {
         Token token = peek();
         if (!(token instanceof Keyword kw) || kw.type() != type) {
-            throw new ParseException("expected keyword '" + type + "' but got " + token);
+            throw new ParseException("expected keyword '" + type + "' but got " + describe(token));
         }
-        this.idx++;
+        advance();
         return kw;
     }
 
     public Separator expectSeparator(SeparatorType type) {
         Token token = peek();
         if (!(token instanceof Separator sep) || sep.type() != type) {
-            throw new ParseException("expected separator '" + type + "' but got " + token);
+            throw new ParseException("expected separator '" + type + "' but got " + describe(token));
         }
-        this.idx++;
+        advance();
         return sep;
     }
 
     public Operator expectOperator(OperatorType type) {
         Token token = peek();
         if (!(token instanceof Operator op) || op.type() != type) {
-            throw new ParseException("expected operator '" + type + "' but got " + token);
+            throw new ParseException("expected operator '" + type + "' but got " + describe(token));
         }
-        this.idx++;
+        advance();
         return op;
     }
     public Identifier expectIdentifier() {
         Token token = peek();
         if (!(token instanceof Identifier ident)) {
-            throw new ParseException("expected identifier but got " + token);
+            throw new ParseException("expected identifier but got " + describe(token));
         }
-        this.idx++;
+        advance();
         return ident;
     }
 
     public Token consume() {
         Token token = peek();
-        this.idx++;
+        advance();
         return token;
     }
 
+    /// {@return a description of the token and its location, for error messages}
+    String describe(Token token) {
+        return "'" + token.asString() + "' at " + this.lineMap.span(token.packedSpan());
+    }
+
     public boolean hasMore() {
-        return this.idx < this.tokens.size();
+        return fill(1);
     }
 
-    private void expectHasMore() {
-        if (this.idx >= this.tokens.size()) {
-            throw new ParseException("reached end of file");
+    private void advance() {
+        this.buffer[this.head] = null;
+        this.head = (this.head + 1) & (BUFFER_SIZE - 1);
+        this.size--;
+    }
+
+    /// Pulls tokens from the lexer until at least `count` tokens are buffered.
+    /// {@return whether enough tokens are available}
+    private boolean fill(int count) {
+        while (this.size < count && !this.exhausted) {
+            Optional<Token> next = this.tokens.get();
+            if (next.isEmpty()) {
+                this.exhausted = true;
+            } else {
+                this.buffer[(this.head + this.size) & (BUFFER_SIZE - 1)] = next.get();
+                this.size++;
+            }
         }
+        return this.size >= count;
     }
 }
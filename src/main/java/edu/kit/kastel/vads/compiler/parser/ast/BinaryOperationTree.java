@@ -1,15 +1,15 @@
 package edu.kit.kastel.vads.compiler.parser.ast;
 
 import edu.kit.kastel.vads.compiler.lexer.Operator;
-import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.PackedSpan;
 import edu.kit.kastel.vads.compiler.parser.visitor.Visitor;
 
 public record BinaryOperationTree(
     ExpressionTree lhs, ExpressionTree rhs, Operator.OperatorType operatorType
 ) implements ExpressionTree {
     @Override
-    public Span span() {
-        return lhs().span().merge(rhs().span());
+    public long packedSpan() {
+        return PackedSpan.merge(lhs().packedSpan(), rhs().packedSpan());
     }
 
     @Override
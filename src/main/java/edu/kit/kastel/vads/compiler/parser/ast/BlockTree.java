@@ -1,11 +1,10 @@
 package edu.kit.kastel.vads.compiler.parser.ast;
 
-import edu.kit.kastel.vads.compiler.Span;
 import edu.kit.kastel.vads.compiler.parser.visitor.Visitor;
 
 import java.util.List;
 
-public record BlockTree(List<StatementTree> statements, Span span) implements StatementTree {
+public record BlockTree(List<StatementTree> statements, long packedSpan) implements StatementTree {
 
     public BlockTree {
         statements = List.copyOf(statements);
@@ -1,16 +1,16 @@
 package edu.kit.kastel.vads.compiler.parser.ast;
 
-import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.PackedSpan;
 import edu.kit.kastel.vads.compiler.parser.visitor.Visitor;
 import org.jspecify.annotations.Nullable;
 
 public record DeclarationTree(TypeTree type, NameTree name, @Nullable ExpressionTree initializer) implements StatementTree {
     @Override
-    public Span span() {
+    public long packedSpan() {
         if (initializer() != null) {
-            return type().span().merge(initializer().span());
+            return PackedSpan.merge(type().packedSpan(), initializer().packedSpan());
         }
-        return type().span().merge(name().span());
+        return PackedSpan.merge(type().packedSpan(), name().packedSpan());
     }
 
     @Override
@@ -1,12 +1,11 @@
 package edu.kit.kastel.vads.compiler.parser.ast;
 
-import edu.kit.kastel.vads.compiler.Span;
 import edu.kit.kastel.vads.compiler.parser.visitor.Visitor;
 
 public record IdentExpressionTree(NameTree name) implements ExpressionTree {
     @Override
-    public Span span() {
-        return name().span();
+    public long packedSpan() {
+        return name().packedSpan();
     }
 
     @Override
@@ -1,12 +1,12 @@
 package edu.kit.kastel.vads.compiler.parser.ast;
 
-import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.PackedSpan;
 import edu.kit.kastel.vads.compiler.parser.visitor.Visitor;
 
-public record NegateTree(ExpressionTree expression, Span minusPos) implements ExpressionTree {
+public record NegateTree(ExpressionTree expression, long minusPos) implements ExpressionTree {
     @Override
-    public Span span() {
-        return minusPos().merge(expression().span());
+    public long packedSpan() {
+        return PackedSpan.merge(minusPos(), expression().packedSpan());
     }
 
     @Override
@@ -1,6 +1,6 @@
 package edu.kit.kastel.vads.compiler.parser.ast;
 
-import edu.kit.kastel.vads.compiler.Span;
+import edu.kit.kastel.vads.compiler.PackedSpan;
 import edu.kit.kastel.vads.compiler.parser.visitor.Visitor;
 
 import java.util.List;
@@ -11,10 +11,10 @@ public record ProgramTree(List<FunctionTree> topLevelTrees) implements Tree {
         topLevelTrees = List.copyOf(topLevelTrees);
     }
     @Override
-    public Span span() {
+    public long packedSpan() {
         var first = topLevelTrees.getFirst();
         var last = topLevelTrees.getLast();
-        return new Span.SimpleSpan(first.span().start(), last.span().end());
+        return PackedSpan.merge(first.packedSpan(), last.packedSpan());
     }
 
     @Override
@@ -1,11 +1,11 @@
 package edu.kit.kastel.vads.compiler.parser.ast;
 
-import edu.kit.kastel.vads.compiler.Span;
 import edu.kit.kastel.vads.compiler.parser.visitor.Visitor;
 
 public sealed interface Tree permits ExpressionTree, FunctionTree, LValueTree, NameTree, ProgramTree, StatementTree, TypeTree {
 
-    Span span();
+    /// {@return the location of this tree as a [edu.kit.kastel.vads.compiler.PackedSpan]}
+    long packedSpan();
 
     <T, R> R accept(Visitor<T, R> visitor, T data);
 }
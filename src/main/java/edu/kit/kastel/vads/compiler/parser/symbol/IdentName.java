@@ -1,8 +1,30 @@
 package edu.kit.kastel.vads.compiler.parser.symbol;
 
-record IdentName(String identifier) implements Name {
+import edu.kit.kastel.vads.compiler.lexer.SymbolTable;
+
+/// The name of an identifier.
+/// Names are compared by their symbol id and the table that assigned it, which makes hashing and equality
+/// checks cheap. Ids of different tables are unrelated, so names from different compilations, e.g. in one
+/// server process or batch, never compare equal even if their ids match.
+record IdentName(String identifier, int symbol, SymbolTable symbols) implements Name {
     @Override
     public String asString() {
         return identifier();
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof IdentName other && other.symbol == this.symbol && other.symbols == this.symbols;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.symbol;
+    }
+
+    @Override
+    public String toString() {
+        // the table has no useful string form
+        return "IdentName[identifier=" + this.identifier + ", symbol=" + this.symbol + "]";
+    }
 }
@@ -10,7 +10,7 @@ public sealed interface Name permits IdentName, KeywordName {
     }
 
     static Name forIdentifier(Identifier identifier) {
-        return new IdentName(identifier.value());
+        return new IdentName(identifier.value(), identifier.symbol(), identifier.symbols());
     }
 
     String asString();
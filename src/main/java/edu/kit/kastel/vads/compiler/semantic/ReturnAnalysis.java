@@ -1,5 +1,6 @@
 package edu.kit.kastel.vads.compiler.semantic;
 
+import edu.kit.kastel.vads.compiler.LineMap;
 import edu.kit.kastel.vads.compiler.parser.ast.FunctionTree;
 import edu.kit.kastel.vads.compiler.parser.ast.ReturnTree;
 import edu.kit.kastel.vads.compiler.parser.visitor.NoOpVisitor;
@@ -8,6 +9,11 @@ import edu.kit.kastel.vads.compiler.parser.visitor.Unit;
 /// Checks that functions return.
 /// Currently only works for straight-line code.
 class ReturnAnalysis implements NoOpVisitor<ReturnAnalysis.ReturnState> {
+    private final LineMap lineMap;
+
+    ReturnAnalysis(LineMap lineMap) {
+        this.lineMap = lineMap;
+    }
 
     static class ReturnState {
         boolean returns = false;
@@ -22,7 +28,8 @@ class ReturnAnalysis implements NoOpVisitor<ReturnAnalysis.ReturnState> {
     @Override
     public Unit visit(FunctionTree functionTree, ReturnState data) {
         if (!data.returns) {
-            throw new SemanticException("function " + functionTree.name() + " does not return");
+            throw new SemanticException("function " + functionTree.name().name().asString() + " at "
+                + this.lineMap.span(functionTree.packedSpan()) + " does not return");
         }
         data.returns = false;
         return NoOpVisitor.super.visit(functionTree, data);
@@ -1,20 +1,41 @@
 package edu.kit.kastel.vads.compiler.semantic;
 
+import edu.kit.kastel.vads.compiler.CompilerStats;
+import edu.kit.kastel.vads.compiler.CompilerStats.Measurement;
+import edu.kit.kastel.vads.compiler.CompilerStats.Phase;
+import edu.kit.kastel.vads.compiler.LineMap;
 import edu.kit.kastel.vads.compiler.parser.ast.ProgramTree;
 import edu.kit.kastel.vads.compiler.parser.visitor.RecursivePostorderVisitor;
 
 public class SemanticAnalysis {
 
     private final ProgramTree program;
+    private final LineMap lineMap;
+    private final CompilerStats stats;
 
-    public SemanticAnalysis(ProgramTree program) {
+    /// @param lineMap the line map of the program's input, used to report error locations
+    public SemanticAnalysis(ProgramTree program, LineMap lineMap) {
+        this(program, lineMap, CompilerStats.DISABLED);
+    }
+
+    /// @param lineMap the line map of the program's input, used to report error locations
+    /// @param stats receives the time spent in each pass
+    public SemanticAnalysis(ProgramTree program, LineMap lineMap, CompilerStats stats) {
         this.program = program;
+        this.lineMap = lineMap;
+        this.stats = stats;
     }
 
     public void analyze() {
-        this.program.accept(new RecursivePostorderVisitor<>(new IntegerLiteralRangeAnalysis()), new Namespace<>());
-        this.program.accept(new RecursivePostorderVisitor<>(new VariableStatusAnalysis()), new Namespace<>());
-        this.program.accept(new RecursivePostorderVisitor<>(new ReturnAnalysis()), new ReturnAnalysis.ReturnState());
+        try (Measurement _ = this.stats.measure(Phase.INTEGER_LITERAL_RANGE)) {
+            this.program.accept(new RecursivePostorderVisitor<>(new IntegerLiteralRangeAnalysis()), new Namespace<>());
+        }
+        try (Measurement _ = this.stats.measure(Phase.VARIABLE_STATUS)) {
+            this.program.accept(new RecursivePostorderVisitor<>(new VariableStatusAnalysis(this.lineMap)), new Namespace<>());
+        }
+        try (Measurement _ = this.stats.measure(Phase.RETURN_ANALYSIS)) {
+            this.program.accept(new RecursivePostorderVisitor<>(new ReturnAnalysis(this.lineMap)), new ReturnAnalysis.ReturnState());
+        }
     }
 
 }
@@ -1,5 +1,6 @@
 package edu.kit.kastel.vads.compiler.semantic;
 
+import edu.kit.kastel.vads.compiler.LineMap;
 import edu.kit.kastel.vads.compiler.parser.ast.AssignmentTree;
 import edu.kit.kastel.vads.compiler.parser.ast.DeclarationTree;
 import edu.kit.kastel.vads.compiler.parser.ast.IdentExpressionTree;
@@ -17,6 +18,11 @@ import java.util.Locale;
 /// - not initialized twice
 /// - assigned before referenced
 class VariableStatusAnalysis implements NoOpVisitor<Namespace<VariableStatusAnalysis.VariableStatus>> {
+    private final LineMap lineMap;
+
+    VariableStatusAnalysis(LineMap lineMap) {
+        this.lineMap = lineMap;
+    }
 
     @Override
     public Unit visit(AssignmentTree assignmentTree, Namespace<VariableStatus> data) {
@@ -33,24 +39,28 @@ class VariableStatusAnalysis implements NoOpVisitor<Namespace<VariableStatusAnal
         return NoOpVisitor.super.visit(assignmentTree, data);
     }
 
-    private static void checkDeclared(NameTree name, @Nullable VariableStatus status) {
+    private void checkDeclared(NameTree name, @Nullable VariableStatus status) {
         if (status == null) {
-            throw new SemanticException("Variable " + name + " must be declared before assignment");
+            throw new SemanticException("Variable " + describe(name) + " must be declared before assignment");
         }
     }
 
-    private static void checkInitialized(NameTree name, @Nullable VariableStatus status) {
+    private void checkInitialized(NameTree name, @Nullable VariableStatus status) {
         if (status == null || status == VariableStatus.DECLARED) {
-            throw new SemanticException("Variable " + name + " must be initialized before use");
+            throw new SemanticException("Variable " + describe(name) + " must be initialized before use");
         }
     }
 
-    private static void checkUndeclared(NameTree name, @Nullable VariableStatus status) {
+    private void checkUndeclared(NameTree name, @Nullable VariableStatus status) {
         if (status != null) {
-            throw new SemanticException("Variable " + name + " is already declared");
+            throw new SemanticException("Variable " + describe(name) + " is already declared");
         }
     }
 
+    private String describe(NameTree name) {
+        return name.name().asString() + " at " + this.lineMap.span(name.packedSpan());
+    }
+
     @Override
     public Unit visit(DeclarationTree declarationTree, Namespace<VariableStatus> data) {
         checkUndeclared(declarationTree.name(), data.get(declarationTree.name()));
@@ -0,0 +1,236 @@
+package edu.kit.kastel.vads.compiler.backend.asm;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import edu.kit.kastel.vads.compiler.generator.ProgramGenerator;
+import edu.kit.kastel.vads.compiler.generator.ProgramGenerator.Shape;
+import edu.kit.kastel.vads.compiler.ir.IrGraph;
+import edu.kit.kastel.vads.compiler.ir.SsaTranslation;
+import edu.kit.kastel.vads.compiler.ir.optimize.LocalValueNumbering;
+import edu.kit.kastel.vads.compiler.lexer.Lexer;
+import edu.kit.kastel.vads.compiler.parser.Parser;
+import edu.kit.kastel.vads.compiler.parser.TokenSource;
+import edu.kit.kastel.vads.compiler.parser.ast.FunctionTree;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Checks that {@link LivenessAnalysis} and {@link SsaLiveness} compute the same live sets.
+ * <p>
+ * The instruction selector only produces straight-line code, so the block graphs with phis are built
+ * randomly, and both analyses are compared with a plain fixpoint over the liveness equations there.
+ */
+class LivenessTest {
+
+	@Test
+	void analysesAgreeOnGeneratedPrograms() {
+		for (long seed = 0; seed < 5; seed++) {
+			String source = ProgramGenerator.generate(new Shape(300, 24, 3, "+-*/%", seed));
+			FunctionTree function = new Parser(new TokenSource(Lexer.forString(source))).parseProgram()
+				.topLevelTrees().getFirst();
+			// without constant folding, which would reduce the program to a single constant
+			IrGraph graph = new SsaTranslation(function, new LocalValueNumbering()).translate();
+			LirFunction instructions = new CodeGenerator().selectInstructions(graph);
+			int[][][] dataflow = analyze(new LivenessAnalysis(), instructions);
+			int[][][] ssa = analyze(new SsaLiveness(), instructions);
+			for (int i = 0; i < instructions.size(); i++) {
+				assertArrayEquals(dataflow[0][i], ssa[0][i], "live-in at " + i + " for seed " + seed);
+				assertArrayEquals(dataflow[1][i], ssa[1][i], "live-out at " + i + " for seed " + seed);
+			}
+		}
+	}
+
+	@Test
+	void analysesMatchFixpointOnRandomBlockGraphs() {
+		for (long seed = 0; seed < 2000; seed++) {
+			LirFunction function = randomFunction(new Random(seed));
+			int[][][] expected = fixpoint(function);
+			int[][][] dataflow = analyze(new LivenessAnalysis(), function);
+			int[][][] ssa = analyze(new SsaLiveness(), function);
+			for (int i = 0; i < function.size(); i++) {
+				assertArrayEquals(expected[0][i], dataflow[0][i], "dataflow live-in at " + i + " for seed " + seed);
+				assertArrayEquals(expected[1][i], dataflow[1][i], "dataflow live-out at " + i + " for seed " + seed);
+				assertArrayEquals(expected[0][i], ssa[0][i], "ssa live-in at " + i + " for seed " + seed);
+				assertArrayEquals(expected[1][i], ssa[1][i], "ssa live-out at " + i + " for seed " + seed);
+			}
+		}
+	}
+
+	/**
+	 * A diamond whose join block takes v0 from the left and v1 from the right branch. Each phi source is only
+	 * live at the end of its own predecessor, and the phi destination is not live before the join.
+	 */
+	@Test
+	void phiSourcesAreLiveAtTheEndOfTheirPredecessor() {
+		LirFunction function = new LirFunction("diamond");
+		int v0 = function.newVirtualRegister();
+		int v1 = function.newVirtualRegister();
+		int v2 = function.newVirtualRegister();
+		function.append(LirOpcode.MOV, LirOperand.IMMEDIATE, v0, LirOperand.NONE, 1);
+		function.append(LirOpcode.MOV, LirOperand.IMMEDIATE, v1, LirOperand.NONE, 2);
+		int left = function.startBlock();
+		function.append(LirOpcode.NEG, v0);
+		int right = function.startBlock();
+		function.append(LirOpcode.NEG, v1);
+		int join = function.startBlock();
+		function.append(LirOpcode.MOV, v2, LirOperand.physical(InstructionSelector.RAX));
+		function.append(LirOpcode.RET);
+		function.addEdge(0, left);
+		function.addEdge(0, right);
+		function.addEdge(left, join);
+		function.addEdge(right, join);
+		function.addPhi(join, v2, v0, v1);
+
+		int[] v0Only = {LirOperand.number(v0)};
+		int[] v1Only = {LirOperand.number(v1)};
+		int[] v2Only = {LirOperand.number(v2)};
+		int[] both = {LirOperand.number(v0), LirOperand.number(v1)};
+		for (Liveness liveness : new Liveness[] {new LivenessAnalysis(), new SsaLiveness()}) {
+			int[][][] sets = analyze(liveness, function);
+			assertArrayEquals(both, sets[1][1], "both sources are live at the end of the entry block");
+			assertArrayEquals(v0Only, sets[1][2], "only the left source is live at the end of the left block");
+			assertArrayEquals(v1Only, sets[1][3], "only the right source is live at the end of the right block");
+			assertArrayEquals(v2Only, sets[0][4], "the phi destination is live at the start of the join block");
+		}
+	}
+
+	/**
+	 * @return the sorted live-in and live-out sets of each instruction
+	 */
+	private static int[][][] analyze(Liveness liveness, LirFunction function) {
+		liveness.analyzeLiveness(function);
+		int[][][] sets = new int[2][function.size()][];
+		for (int i = 0; i < function.size(); i++) {
+			sets[0][i] = liveness.liveIn(i);
+			sets[1][i] = liveness.liveOut(i);
+			Arrays.sort(sets[0][i]);
+			Arrays.sort(sets[1][i]);
+		}
+		return sets;
+	}
+
+	/**
+	 * Builds up to seven non-empty blocks of moves, additions and negations on up to ten virtual registers,
+	 * connected by random edges including loops, with up to two phis on each block that has predecessors.
+	 */
+	private static LirFunction randomFunction(Random random) {
+		LirFunction function = new LirFunction("random");
+		int blocks = 1 + random.nextInt(7);
+		int registers = 1 + random.nextInt(10);
+		for (int i = 0; i < registers; i++) {
+			function.newVirtualRegister();
+		}
+		for (int block = 0; block < blocks; block++) {
+			if (block > 0) {
+				function.startBlock();
+			}
+			int instructions = 1 + random.nextInt(5);
+			for (int i = 0; i < instructions; i++) {
+				int destination = LirOperand.virtual(random.nextInt(registers));
+				int source = LirOperand.virtual(random.nextInt(registers));
+				switch (random.nextInt(4)) {
+					case 0 -> function.append(LirOpcode.MOV, LirOperand.IMMEDIATE, destination, LirOperand.NONE, 1);
+					case 1 -> function.append(LirOpcode.MOV, source, destination);
+					case 2 -> function.append(LirOpcode.ADD, source, destination);
+					default -> function.append(LirOpcode.NEG, destination);
+				}
+			}
+		}
+		for (int block = 0; block < blocks; block++) {
+			int successors = random.nextInt(3);
+			for (int i = 0; i < successors; i++) {
+				function.addEdge(block, random.nextInt(blocks));
+			}
+		}
+		for (int block = 0; block < blocks; block++) {
+			int predecessors = function.predecessorCount(block);
+			if (predecessors == 0) {
+				continue;
+			}
+			int phis = random.nextInt(3);
+			for (int phi = 0; phi < phis; phi++) {
+				int[] sources = new int[predecessors];
+				for (int p = 0; p < predecessors; p++) {
+					sources[p] = random.nextInt(5) == 0
+						? LirOperand.IMMEDIATE
+						: LirOperand.virtual(random.nextInt(registers));
+				}
+				function.addPhi(block, LirOperand.virtual(random.nextInt(registers)), sources);
+			}
+		}
+		return function;
+	}
+
+	/**
+	 * Iterates {@code in(i) = use(i) + (out(i) - def(i))} to a fixpoint, where {@code out(i)} is the live-in
+	 * of the next instruction, or at the end of a block the union over its successors of their live-in without
+	 * their phi destinations, plus the phi sources for the edge.
+	 * @return the sorted live-in and live-out sets of each instruction
+	 */
+	private static int[][][] fixpoint(LirFunction function) {
+		BitSet[] in = new BitSet[function.size()];
+		BitSet[] out = new BitSet[function.size()];
+		for (int i = 0; i < function.size(); i++) {
+			in[i] = new BitSet();
+			out[i] = new BitSet();
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int block = function.blockCount() - 1; block >= 0; block--) {
+				for (int i = function.blockEnd(block) - 1; i >= function.blockStart(block); i--) {
+					BitSet newOut = new BitSet();
+					if (i + 1 < function.blockEnd(block)) {
+						newOut.or(in[i + 1]);
+					} else {
+						for (int s = 0; s < function.successorCount(block); s++) {
+							newOut.or(liveOnEdge(function, block, function.successor(block, s), in));
+						}
+					}
+					BitSet newIn = (BitSet) newOut.clone();
+					if (function.definedRegister(i) >= 0) {
+						newIn.clear(function.definedRegister(i));
+					}
+					for (int k = 0; k < LirFunction.MAX_OPERANDS; k++) {
+						if (function.usedRegister(i, k) >= 0) {
+							newIn.set(function.usedRegister(i, k));
+						}
+					}
+					if (!newOut.equals(out[i]) || !newIn.equals(in[i])) {
+						out[i] = newOut;
+						in[i] = newIn;
+						changed = true;
+					}
+				}
+			}
+		}
+		int[][][] sets = new int[2][function.size()][];
+		for (int i = 0; i < function.size(); i++) {
+			sets[0][i] = in[i].stream().toArray();
+			sets[1][i] = out[i].stream().toArray();
+		}
+		return sets;
+	}
+
+	private static BitSet liveOnEdge(LirFunction function, int block, int successor, BitSet[] in) {
+		BitSet live = (BitSet) in[function.blockStart(successor)].clone();
+		for (int phi = 0; phi < function.phiCount(successor); phi++) {
+			live.clear(LirOperand.number(function.phiDestination(successor, phi)));
+		}
+		for (int p = 0; p < function.predecessorCount(successor); p++) {
+			if (function.predecessor(successor, p) != block) {
+				continue;
+			}
+			for (int phi = 0; phi < function.phiCount(successor); phi++) {
+				int source = function.phiSource(successor, phi, p);
+				if (LirOperand.isVirtual(source)) {
+					live.set(LirOperand.number(source));
+				}
+			}
+		}
+		return live;
+	}
+}